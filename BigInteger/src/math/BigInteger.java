@@ -1,12 +1,57 @@
 package math;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
 /**
  * This class encapsulates a BigInteger, i.e. a positive or negative integer with 
  * any number of digits, which overcomes the computer storage length limitation of 
  * an integer.
  * 
  */
-public class BigInteger {
+public class BigInteger implements Comparable<BigInteger> {
+
+	/**
+	 * Largest part of a file that parse(Path) maps at once
+	 */
+	private static final long MAP_WINDOW = 1L << 30;
+
+	/**
+	 * Magnitudes below this bound, 10^18 or any two limbs, are kept inline in
+	 * compact instead of in mag. Staying this far below Long.MAX_VALUE means
+	 * the sum or difference of two compact values can never overflow a long.
+	 */
+	private static final long COMPACT_LIMIT = (long)Limbs.BASE * Limbs.BASE;
+
+	/**
+	 * Values from -MAX_CACHED to MAX_CACHED are shared instead of allocated
+	 */
+	private static final int MAX_CACHED = 16;
+
+	private static final BigInteger[] CACHE = new BigInteger[2 * MAX_CACHED + 1];
+	static {
+		for(int i = -MAX_CACHED; i <= MAX_CACHED; i++) {
+			CACHE[i + MAX_CACHED] = new BigInteger(i);
+		}
+	}
+
+	/**
+	 * The BigInteger 0
+	 */
+	public static final BigInteger ZERO = CACHE[MAX_CACHED];
+
+	/**
+	 * The BigInteger 1
+	 */
+	public static final BigInteger ONE = CACHE[MAX_CACHED + 1];
 
 	/**
 	 * True if this is a negative integer
@@ -19,12 +64,26 @@ public class BigInteger {
 	int numDigits;
 	
 	/**
-	 * Reference to the first node of this integer's linked list representation
-	 * NOTE: The linked list stores the Least Significant Digit in the FIRST node.
-	 * For instance, the integer 235 would be stored as:
-	 *    5 --> 3  --> 2
+	 * Magnitude of this integer, as base 10^9 limbs (see Limbs).
+	 * NOTE: The array stores the Least Significant limb FIRST, and never has
+	 * leading zero limbs. For instance, the integer 12345678901234567890 would
+	 * be stored as:
+	 *    234567890, 345678901, 12
+	 * Integers below 10^18 in magnitude, zero included, don't use the array
+	 * at all: it is null and the value is in compact. Use mag() to get the
+	 * limbs of any integer.
 	 */
-	DigitNode front;
+	int[] mag;
+
+	/**
+	 * Value of this integer, sign included, when mag is null
+	 */
+	long compact;
+
+	/**
+	 * Cached hash code, 0 until it is first computed
+	 */
+	private int hash;
 	
 	/**
 	 * Initializes this integer to a positive number with zero digits, in other
@@ -33,7 +92,88 @@ public class BigInteger {
 	public BigInteger() {
 		negative = false;
 		numDigits = 0;
-		front = null;
+		mag = null;
+		compact = 0;
+	}
+
+	/**
+	 * Initializes this integer inline from a value below 10^18 in magnitude.
+	 *
+	 * @param value Value of the integer
+	 */
+	private BigInteger(long value) {
+		this.negative = value < 0;
+		this.numDigits = Limbs.digitCount(Math.abs(value));
+		this.mag = null;
+		this.compact = value;
+	}
+	
+	/**
+	 * Initializes this integer from a sign and a normalized magnitude.
+	 * A zero magnitude is always stored as positive, and a magnitude of at
+	 * most two limbs is stored inline.
+	 * 
+	 * @param negative True if the integer is negative
+	 * @param mag Normalized magnitude, which is NOT copied
+	 */
+	BigInteger(boolean negative, int[] mag) {
+		this.negative = negative && mag.length != 0;
+		if(mag.length <= 2) {
+			long value = mag.length == 0 ? 0 : mag[0];
+			if(mag.length == 2) {
+				value += mag[1] * (long)Limbs.BASE;
+			}
+			this.numDigits = Limbs.digitCount(value);
+			this.mag = null;
+			this.compact = this.negative ? -value : value;
+		} else {
+			this.numDigits = Limbs.digitCount(mag);
+			this.mag = mag;
+		}
+	}
+
+	/**
+	 * Returns a BigInteger with the given value. Small values are shared, so
+	 * this does not always allocate.
+	 *
+	 * @param value Value of the integer
+	 * @return BigInteger with that value
+	 */
+	public static BigInteger valueOf(long value) {
+		if(value >= -MAX_CACHED && value <= MAX_CACHED) {
+			return CACHE[(int)value + MAX_CACHED];
+		}
+		if(value > -COMPACT_LIMIT && value < COMPACT_LIMIT) {
+			return new BigInteger(value);
+		}
+		//Only a third limb is needed, and the magnitude is read as unsigned
+		//so that Long.MIN_VALUE works as well
+		long abs = value < 0 ? -value : value;
+		int[] mag = {
+				(int)Long.remainderUnsigned(abs, Limbs.BASE),
+				(int)(Long.divideUnsigned(abs, Limbs.BASE) % Limbs.BASE),
+				(int)Long.divideUnsigned(abs, COMPACT_LIMIT)
+		};
+		return new BigInteger(value < 0, mag);
+	}
+
+	/**
+	 * Returns the magnitude of this integer as limbs, building them for an
+	 * inline value. The array must not be modified.
+	 *
+	 * @return Normalized magnitude of this integer
+	 */
+	int[] mag() {
+		return mag != null ? mag : Limbs.valueOf(Math.abs(compact));
+	}
+
+	/**
+	 * Checks whether this integer is zero.
+	 *
+	 * @return True if this integer is zero
+	 */
+	boolean isZero() {
+		return mag == null && compact == 0;
 	}
 	
 	/**
@@ -60,107 +200,150 @@ public class BigInteger {
 	 */
 	public static BigInteger parse(String integer) 
 	throws IllegalArgumentException {
-		//Trim the leading and trailing spaces if they exist
-		integer = integer.trim();
-		//Initialize the BigInteger
-		BigInteger bigInt = new BigInteger();
+		if(integer == null) {
+			throw new IllegalArgumentException("Please input a valid number.");
+		}
 		
-		//Store values to know whether to ignore a sign during parsing
-		boolean negative = false, hasExplicitSign = false;
-		int stringLength;
-		if(integer != null) {
-			stringLength = integer.length();
-		} else {
-			throw new IllegalArgumentException("Please input a valid number");
+		//Skip the leading and trailing spaces if they exist (the same characters
+		//String.trim removes), without copying the string
+		int begin = 0, end = integer.length();
+		while(begin < end && integer.charAt(begin) <= ' ') {
+			begin++;
+		}
+		while(end > begin && integer.charAt(end-1) <= ' ') {
+			end--;
 		}
 		
 		//If no number was inputed or only a sign with no corresponding 
 		//number was inputed, throw exception
-		if(stringLength == 0) {
+		if(end - begin == 0) {
 			throw new IllegalArgumentException("Please input a valid number.");
-		} else if(stringLength == 1 && integer.substring(0,1).compareTo("-") <= 0) {
+		} else if(end - begin == 1 && integer.charAt(begin) <= '-') {
 			throw new IllegalArgumentException("Please input a valid number.");
 		}
 		
-		//Otherwise check whether the number is correctly formatted for the most part
-		else if(stringLength > 0) {
-			//Keep track of the last indexes of the signs
-			//(Initialize at -1 because there might not be signs)
-			int lastIndexNeg =  -1;
-			int lastIndexPos = -1;
-			for(int i = 0; i < stringLength; i++) {
-				char digitOrSign = integer.charAt(i);
-				if(digitOrSign == '-')
-					lastIndexNeg = i;
-				else if(digitOrSign == '+' ) 
-					lastIndexPos = i;
-				else if(!Character.isDigit(digitOrSign))
-					throw new IllegalArgumentException("Please input a valid number.");
-			}
-			
-			//Check whether there are stray signs within the number
-			if(lastIndexNeg > 0 || lastIndexPos > 0) {
+		//Determine whether a sign was explicitly given, and if so,
+		//whether the sign is positive or negative.
+		boolean negative = false;
+		char first = integer.charAt(begin);
+		if(first == '-' || first == '+') {
+			negative = first == '-';
+			begin++;
+		}
+		
+		//Every remaining character must be a digit, so this also catches
+		//stray signs within the number
+		int firstNonzeroIdx = end;
+		for(int i = begin; i < end; i++) {
+			int digit = Character.digit(integer.charAt(i), 10);
+			if(digit < 0) {
 				throw new IllegalArgumentException("Please input a valid number.");
 			}
-			
-			//Determine whether a sign was explicitly given, and if so,
-			//whether the sign is positive or negative.
-			if(lastIndexNeg == 0) {
-				hasExplicitSign = true;
-				negative = true;
-			} else if(lastIndexPos == 0) {
-				hasExplicitSign = true;
-			}
-			
-			//If the sign was explicit, we don't need to worry about it anymore
-			if(hasExplicitSign) {
-				integer = integer.substring(1);
-				stringLength--;
-			}
-			
-			if(stringLength == 1 && integer.charAt(0) == '0') {
-				return bigInt;
+			if(digit != 0 && firstNonzeroIdx == end) {
+				firstNonzeroIdx = i;
 			}
 		}
 		
-		//Get the last digit (ones place) and initialize bigInt.front
-		int lastDigit = Integer.parseInt(integer.substring(stringLength-1, stringLength));
-		bigInt.front = new DigitNode(lastDigit, null);
-		
-		//Get the index at which to stop looking for meaningful digits
-		//if there are leading zeroes
-		int firstNonzeroIdx = 0;
-		int i = stringLength-1; //used later for string traversal
-		for(; firstNonzeroIdx < stringLength; firstNonzeroIdx++) {
-			if(integer.substring(firstNonzeroIdx, firstNonzeroIdx+1).compareTo("0") > 0) {
-				break;
-			}
-		}
-			
 		//There is no point in a sign if the number is 0, and return it right away
-		if(firstNonzeroIdx > i || (lastDigit == 0 && stringLength == 1)) {
-			bigInt.front = null;
-			bigInt.negative = false;
-			bigInt.numDigits = 0;
-			return bigInt;
+		if(firstNonzeroIdx == end) {
+			return ZERO;
 		}
 		
-		//Otherwise, keep the sign and length
-		bigInt.negative = negative;
-		bigInt.numDigits = stringLength;
+		//A number that is short enough is simply kept as a long
+		int numDigits = end - firstNonzeroIdx;
+		if(numDigits < 2 * Limbs.BASE_DIGITS + 1) {
+			long value = 0;
+			for(int i = firstNonzeroIdx; i < end; i++) {
+				value = value * 10 + Character.digit(integer.charAt(i), 10);
+			}
+			return valueOf(negative ? -value : value);
+		}
 		
-		//Create the linked list
-		for(DigitNode curr = bigInt.front; i > firstNonzeroIdx; curr = curr.next, i--) {
-			String subStr = integer.substring(i-1, i);
-			if(subStr.compareTo("-") > 0) {
-				curr.next = new DigitNode(Integer
-					.parseInt(integer.substring(i-1, i)),  null);
+		//Fill the limbs nine digits at a time, starting from the most significant
+		//limb, which holds whatever is left over from a multiple of nine digits
+		int[] mag = new int[(numDigits + Limbs.BASE_DIGITS - 1) / Limbs.BASE_DIGITS];
+		int pos = firstNonzeroIdx;
+		int chunk = numDigits - (mag.length - 1) * Limbs.BASE_DIGITS;
+		for(int i = mag.length - 1; i >= 0; i--, chunk = Limbs.BASE_DIGITS) {
+			int limb = 0;
+			for(int stop = pos + chunk; pos < stop; pos++) {
+				limb = limb * 10 + Character.digit(integer.charAt(pos), 10);
 			}
+			mag[i] = limb;
 		}
 		
-		return bigInt;
+		return new BigInteger(negative, mag);
 	}
-	
+
+	/**
+	 * Parses an integer read from a character stream, in the same format as
+	 * parse(String). The stream is read to its end in blocks, so the text
+	 * never has to be held in memory as a whole. The reader is NOT closed.
+	 *
+	 * @param in Stream of characters to read the integer from
+	 * @return BigInteger instance that stores the input integer
+	 * @throws IOException If the stream cannot be read
+	 * @throws IllegalArgumentException If input is incorrectly formatted
+	 */
+	public static BigInteger parse(Reader in)
+	throws IOException, IllegalArgumentException {
+		if(in == null) {
+			throw new IllegalArgumentException("Please input a valid number.");
+		}
+		DecimalParser parser = new DecimalParser();
+		char[] buf = new char[8192];
+		for(int n; (n = in.read(buf)) >= 0; ) {
+			parser.accept(buf, 0, n);
+		}
+		return parser.finish();
+	}
+
+	/**
+	 * Parses an integer stored in a buffer as US-ASCII (or ISO-8859-1) text,
+	 * in the same format as parse(String). The bytes between the buffer's
+	 * position and limit are read, and the position is not changed.
+	 *
+	 * @param buf Buffer holding the integer's characters
+	 * @return BigInteger instance that stores the input integer
+	 * @throws IllegalArgumentException If input is incorrectly formatted
+	 */
+	public static BigInteger parse(ByteBuffer buf)
+	throws IllegalArgumentException {
+		if(buf == null) {
+			throw new IllegalArgumentException("Please input a valid number.");
+		}
+		DecimalParser parser = new DecimalParser();
+		parser.accept(buf);
+		return parser.finish();
+	}
+
+	/**
+	 * Parses an integer stored in a file as US-ASCII (or ISO-8859-1) text, in
+	 * the same format as parse(String). The file is memory-mapped a window at
+	 * a time instead of being read into the heap, so files larger than 2GB
+	 * work as well.
+	 *
+	 * @param file File holding the integer's characters
+	 * @return BigInteger instance that stores the input integer
+	 * @throws IOException If the file cannot be read
+	 * @throws IllegalArgumentException If input is incorrectly formatted
+	 */
+	public static BigInteger parse(Path file)
+	throws IOException, IllegalArgumentException {
+		if(file == null) {
+			throw new IllegalArgumentException("Please input a valid number.");
+		}
+		DecimalParser parser = new DecimalParser();
+		try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			long size = channel.size();
+			for(long pos = 0; pos < size; pos += MAP_WINDOW) {
+				long len = Math.min(MAP_WINDOW, size - pos);
+				parser.accept(channel.map(FileChannel.MapMode.READ_ONLY, pos, len));
+			}
+		}
+		return parser.finish();
+	}
+
 	/**
 	 * Adds an integer to this integer, and returns the result in a NEW BigInteger object. 
 	 * DOES NOT MODIFY this integer.
@@ -173,344 +356,685 @@ public class BigInteger {
 	public BigInteger add(BigInteger other) {
 		//If the other number is null or 0, that is equivalent
 		//to zero. Addition will not change the value of 'this'.
-		if(other == null || other.front == null) {
+		if(other == null || other.isZero()) {
 			return this;
 		} 
 		//Otherwise, if this number is 0 while the other number is
 		//not null, just return other since it will remain unaltered
-		else if(this.front == null) {
+		else if(this.isZero()) {
 			return other;
 		}
 		
-		//Initialize our BigInteger for the answer
-		BigInteger answer = new BigInteger();
+		//Two inline values are added as longs, which cannot overflow
+		if(this.mag == null && other.mag == null) {
+			return valueOf(this.compact + other.compact);
+		}
 		
 		//If both numbers are negative or both are positive,
 		//Just ADD them up and carry the sign
+		int[] thisMag = this.mag(), otherMag = other.mag();
 		if(this.negative == other.negative) {
-			answer.negative = this.negative;
-			answer.front = new DigitNode(0, null);
-			
-			//Initialize pointers to all the integers being added and the answer
-			DigitNode thisPtr = this.front, otherPtr = other.front, ansPtr = answer.front;
-			int carry = 0;
-			
-			//While there are digits that can be added, sum them up
-			//and set the current digit of answer to the sum
-			for(; thisPtr != null && otherPtr != null; 
-					thisPtr = thisPtr.next, otherPtr = otherPtr.next) {
-				
-				int digitSum = thisPtr.digit + otherPtr.digit + carry;
-				carry = digitSum / 10; //If digitSum > 9, carry the tens places
-				ansPtr.digit = digitSum % 10;
-				
-				//Only create the next node in the answer if there
-				//are more digits to be added/tacked on
-				if(thisPtr.next != null || otherPtr.next != null) {
-					ansPtr.next = new DigitNode(0,null);
-					ansPtr = ansPtr.next;
-				}
-			}
-			
-			//Only one of the following while loops will run if 
-			//one of the numbers being added was greater than the other,
-			//essentially tacking on the remaining digits to answer.
-			for(; thisPtr != null ; thisPtr = thisPtr.next) {
-				int digitSum = thisPtr.digit + carry;
-				carry = digitSum / 10;
-				ansPtr.digit = digitSum % 10;
-				if(thisPtr.next != null) {
-					ansPtr.next = new DigitNode(0,null);
-					ansPtr = ansPtr.next;
-				}
-			}
-			
-			for(; otherPtr != null; otherPtr = otherPtr.next) {
-				int digitSum = otherPtr.digit + carry;
-				carry = digitSum / 10;
-				ansPtr.digit = digitSum % 10;
-				if(otherPtr.next != null) {
-					ansPtr.next = new DigitNode(0,null);
-					ansPtr = ansPtr.next;
-				}
-			}
-			
-			//Make sure the carry bit is fully carried through
-			if(carry != 0) {
-				ansPtr.next = new DigitNode(carry, null);
-			}
+			return new BigInteger(this.negative, Limbs.add(thisMag, otherMag));
 		}
 		
 		//Otherwise exactly one of the integers is negative,
-		//in which case we have to SUBTRACT
-		else {
-			//Keep track of which number is greater and lesser
-			BigInteger greater, lesser;
-			
-			//Copy the respective BigIntegers into their variables
-			if(isGreater(other)) {
-				greater = other;
-				lesser = this;
-			} else {
-				greater = this;
-				lesser = other;
-			}
-			//answer's negative would generally match whichever had greater magnitude
-			answer.negative = greater.negative;
-			
-			//Initialize the answer to be returned
-			//The sign of answer corresponds to the integer
-			//of greater magnitude
-			answer.front = new DigitNode(0, null);
-			
-			//Initialize pointers to all the integers being added and the answer
-			DigitNode gtrPtr = greater.front, lsPtr = lesser.front, ansPtr = answer.front;
-			
-			//While there are digits to subtract, do so while keeping
-			//track of borrowing
-			boolean hasBorrowed = false, borrowed = false;
-			for(; gtrPtr != null && lsPtr != null; gtrPtr = gtrPtr.next, lsPtr = lsPtr.next, ansPtr = ansPtr.next) {
-				
-				//If the digit of the number being subtracted from is less
-				//than the number being subtracted from it, we need to
-				//borrow from the next digit then subtract
-				int gtrDigit = gtrPtr.digit;
-				if(borrowed) //If we previously borrowed, decrement the digit
-					gtrDigit--;
-				
-				//If the digit cannot be subtracted from, borrow and keep track of that
-				if(gtrDigit < lsPtr.digit || gtrDigit < 0) {
-					gtrDigit += 10;
-					hasBorrowed = true;
-				}
-				
-				//Assign the difference and check if it's a nonzero number
-				int diff = gtrDigit - lsPtr.digit;
-				ansPtr.digit = diff;
-				
-				//Only create the next node in the answer if there
-				//are more digits to be added/tacked on
-				if(gtrPtr.next != null || lsPtr.next != null) {
-					ansPtr.next = new DigitNode(0,null);
-				}
-				
-				//If we borrowed for the current digit, we'll have to decrement the next digit
-				borrowed = hasBorrowed;
-				//set to false because if we borrowed, we're done borrowing for this digit
-				hasBorrowed = false;
-			}
-			
-			
-			//Copy any remaining digits in the greater number
-			//(lesser cannot have more digits than greater so
-			// we do not need to worry about it).
-			for(; gtrPtr != null; gtrPtr = gtrPtr.next) {
-				//Transfer the digit and check whether it's a nonzero number
-				int gtrDigit = gtrPtr.digit;
-				if(borrowed)
-					gtrDigit--;
-				
-				if(gtrDigit < 0) {
-					gtrDigit += 10;
-					hasBorrowed = true;
-				}
-				ansPtr.digit = gtrDigit;
-				
-				//Only make a new node if there are more digits to copy
-				if(gtrPtr.next != null) {
-					ansPtr.next = new DigitNode(0,null);
-					ansPtr = ansPtr.next;
-				}
-				
-				borrowed = hasBorrowed;
-				hasBorrowed = false;
-			}	
+		//in which case we have to SUBTRACT the lesser magnitude
+		//from the greater one, and the answer takes the sign of the greater
+		if(Limbs.compare(thisMag, otherMag) < 0) {
+			return new BigInteger(other.negative, Limbs.subtract(otherMag, thisMag));
+		}
+		return new BigInteger(this.negative, Limbs.subtract(thisMag, otherMag));
+	}
+
+	/**
+	 * Subtracts an integer from this integer, and returns the result in a NEW
+	 * BigInteger object. DOES NOT MODIFY this integer.
+	 *
+	 * @param other Integer to be subtracted from this integer
+	 * @return Result integer
+	 */
+	public BigInteger subtract(BigInteger other) {
+		if(other == null || other.isZero()) {
+			return this;
+		}
+		return add(other.negate());
+	}
+
+	/**
+	 * Returns the BigInteger with the same magnitude as this integer and
+	 * the opposite sign - DOES NOT MODIFY this integer.
+	 *
+	 * @return A new BigInteger which is -this
+	 */
+	public BigInteger negate() {
+		if(mag == null) {
+			return valueOf(-compact);
+		}
+		return new BigInteger(!negative, mag);
+	}
+
+	/**
+	 * Returns the BigInteger obtained by multiplying the given BigInteger
+	 * with this BigInteger - DOES NOT MODIFY this BigInteger
+	 * 
+	 * @param other BigInteger to be multiplied
+	 * @return A new BigInteger which is the product of this BigInteger and other.
+	 */
+	public BigInteger multiply(BigInteger other) {
+		//If either number is 0, the result will be 0;
+		if(other == null || other.isZero() || this.isZero()) {
+			return ZERO;
 		}
 		
-		//Keep track of the last non-zero digit for truncating leading zeros
-		int count = 0, lastNonzero = 0;
-		answer.numDigits = 0;
-		for(DigitNode ptr = answer.front; ptr != null; ptr = ptr.next, count++) {
-			if(ptr.digit != 0) {
-				lastNonzero = count;
-			}
+		//Two inline values are multiplied as longs when the product is sure
+		//to fit, that is, when their bit lengths add up to at most 63
+		if(this.mag == null && other.mag == null
+				&& Long.numberOfLeadingZeros(Math.abs(this.compact))
+				+ Long.numberOfLeadingZeros(Math.abs(other.compact)) >= 65) {
+			return valueOf(this.compact * other.compact);
 		}
 		
-		//Loop through to increment numDigits correctly and truncate leading zeros
-		count = 0;
-		for(DigitNode ptr = answer.front; ptr != null; ptr = ptr.next, count++) {
-			answer.numDigits++;
-			if(count == lastNonzero) {
-				ptr.next = null;
-				break;
-			}
+		//Multiplying a number by itself can take the squaring shortcut
+		if(other == this) {
+			return square();
 		}
 		
-		//If the number is zero, adjust the variables to represent 0 
-		if(answer.numDigits == 1 && answer.front.digit == 0
-			|| answer.numDigits == 0) {
-			answer.negative = false;
-			answer.front = null;
-			answer.numDigits = 0;
+		//Products of very large operands are split across the common pool,
+		//if there is more than one thread to share them
+		if(this.mag != null && other.mag != null
+				&& Math.min(this.mag.length, other.mag.length) >= Multiplication.AUTO_PARALLEL_THRESHOLD
+				&& ForkJoinPool.getCommonPoolParallelism() > 1) {
+			return multiplyParallel(other, ForkJoinPool.commonPool());
 		}
-
-		return answer;
+		
+		//Set the negative value of the answer based on the scenario
+		//(sign is + if +*+ or -*-, and is - if +*-)
+		return new BigInteger(this.negative != other.negative, 
+				Multiplication.multiply(this.mag(), other.mag()));
 	}
 	
 	/**
-	 * Checks whether the BigInteger inputed as the
-	 * parameter is greater than this integer in terms of
-	 * magnitude (ignoring sign) 
-	 * @param other Another BigInteger
-	 * @return checks whether {@code other} is greater than {@code this}
+	 * Returns the BigInteger obtained by multiplying the given BigInteger
+	 * with this BigInteger, splitting the work into tasks on the given
+	 * fork/join pool - DOES NOT MODIFY this BigInteger.
+	 * The result is exactly the same as multiply gives. This only pays off
+	 * when both integers have tens of thousands of digits or more; smaller
+	 * products simply run on the calling thread.
+	 * 
+	 * @param other BigInteger to be multiplied
+	 * @param pool Fork/join pool to run the partial products on
+	 * @return A new BigInteger which is the product of this BigInteger and other.
 	 */
-	private boolean isGreater(BigInteger other) {
-		if(this.numDigits > other.numDigits) {
-			return false;
-		} else if(other.numDigits > this.numDigits) {
-			return true;
-		} else {
-			DigitNode ptr1 = this.front, ptr2 = other.front;
-			boolean greater = false;
-			while(ptr1 != null && ptr2 != null) {
-				if(ptr2.digit > ptr1.digit) {
-					greater = true;
-				} else if(ptr2.digit < ptr1.digit) {
-					greater = false;
-				}
-				ptr1 = ptr1.next;
-				ptr2 = ptr2.next;
-			}
-			return greater;
+	public BigInteger multiplyParallel(BigInteger other, ForkJoinPool pool) {
+		if(other == null || other.isZero() || this.isZero()) {
+			return ZERO;
 		}
+		return new BigInteger(this.negative != other.negative, 
+				Multiplication.multiplyParallel(this.mag(), other.mag(), pool));
 	}
 	
 	/**
-	 * Returns the BigInteger obtained by multiplying the given BigInteger
-	 * with this BigInteger - DOES NOT MODIFY this BigInteger
+	 * Returns the quotient and remainder of dividing this BigInteger by the
+	 * given one - DOES NOT MODIFY this BigInteger.
+	 * The quotient is truncated toward zero, and the remainder takes the sign
+	 * of this BigInteger, so that this = quotient * divisor + remainder.
+	 * For instance, -7 divided by 2 gives -3 with remainder -1.
 	 * 
-	 * @param other BigInteger to be multiplied
-	 * @return A new BigInteger which is the product of this BigInteger and other.
+	 * @param divisor BigInteger to divide by
+	 * @return Array holding the quotient, followed by the remainder
+	 * @throws ArithmeticException If the divisor is zero
 	 */
-	public BigInteger multiply(BigInteger other) {
-		//Initialize the BigInteger to store the answer;
-		BigInteger answer = new BigInteger();
+	public BigInteger[] divideAndRemainder(BigInteger divisor) 
+	throws ArithmeticException {
+		if(divisor == null || divisor.isZero()) {
+			throw new ArithmeticException("Cannot divide by zero.");
+		}
 		
-		//If either number is 0, the result will be 0;
-		if(other == null || other.front == null || this.front == null) {
-			return answer;
+		//Java's long division truncates the same way
+		if(this.mag == null && divisor.mag == null) {
+			return new BigInteger[] {
+					valueOf(this.compact / divisor.compact),
+					valueOf(this.compact % divisor.compact)
+			};
+		}
+		
+		int[][] qr = Division.divideAndRemainder(this.mag(), divisor.mag());
+		return new BigInteger[] {
+				new BigInteger(this.negative != divisor.negative, qr[0]),
+				new BigInteger(this.negative, qr[1])
+		};
+	}
+	
+	/**
+	 * Returns the quotient of dividing this BigInteger by the given one,
+	 * truncated toward zero - DOES NOT MODIFY this BigInteger
+	 * 
+	 * @param divisor BigInteger to divide by
+	 * @return A new BigInteger which is this / divisor
+	 * @throws ArithmeticException If the divisor is zero
+	 */
+	public BigInteger divide(BigInteger divisor) 
+	throws ArithmeticException {
+		return divideAndRemainder(divisor)[0];
+	}
+	
+	/**
+	 * Returns the remainder of dividing this BigInteger by the given one,
+	 * with the sign of this BigInteger - DOES NOT MODIFY this BigInteger
+	 * 
+	 * @param divisor BigInteger to divide by
+	 * @return A new BigInteger which is this - (this / divisor) * divisor
+	 * @throws ArithmeticException If the divisor is zero
+	 */
+	public BigInteger remainder(BigInteger divisor) 
+	throws ArithmeticException {
+		return divideAndRemainder(divisor)[1];
+	}
+	
+	/**
+	 * Returns this BigInteger modulo the given positive modulus. Unlike
+	 * remainder, the result is never negative: -7 mod 3 is 2.
+	 * DOES NOT MODIFY this BigInteger.
+	 * 
+	 * @param modulus Positive BigInteger to reduce by
+	 * @return A new BigInteger between 0 and modulus - 1
+	 * @throws ArithmeticException If the modulus is not positive
+	 */
+	public BigInteger mod(BigInteger modulus) 
+	throws ArithmeticException {
+		if(modulus == null || modulus.isZero() || modulus.negative) {
+			throw new ArithmeticException("Modulus must be positive.");
+		}
+		
+		BigInteger rem = remainder(modulus);
+		if(rem.negative) {
+			return modulus.add(rem);
 		}
+		return rem;
+	}
+	
+	/**
+	 * Returns this BigInteger raised to the given power, modulo the given
+	 * positive modulus - DOES NOT MODIFY this BigInteger.
+	 * A negative exponent raises the modular inverse of this BigInteger instead.
+	 * 
+	 * @param exponent Exponent to raise this BigInteger to
+	 * @param modulus Positive BigInteger to reduce by
+	 * @return A new BigInteger which is this^exponent mod modulus
+	 * @throws ArithmeticException If the modulus is not positive, or the exponent
+	 *         is negative and this BigInteger has no inverse modulo the modulus
+	 */
+	public BigInteger modPow(BigInteger exponent, BigInteger modulus) 
+	throws ArithmeticException {
+		BigInteger base = mod(modulus);
 		
-		//Initialize front
-		answer.front = new DigitNode(0, null);
+		//Everything is 0 mod 1, and anything to the power of 0 is 1
+		if(modulus.mag == null && modulus.compact == 1) {
+			return ZERO;
+		}
+		if(exponent == null || exponent.isZero()) {
+			return ONE;
+		}
 		
-		//Keep track of how many zeros to add in front of the products to be added
-		int numZeros = 0;
-		//For each digit in the other BigInteger, multiply
-		//it by every digit in this BigInteger
-		for(DigitNode otherPtr = other.front; otherPtr != null; otherPtr = otherPtr.next, numZeros++) {
-			
-			//Initialize the scalar multiple, its front, and its number of digits
-			//(If we are inside this loop, the number of digits has to equal at least 1)
-			BigInteger scalarMultiple = new BigInteger();
-			scalarMultiple.front = new DigitNode(0, null);
-			DigitNode scalarPtr = scalarMultiple.front;
-			
-			//Add the necessary zeros at the beginning of the multiple
-			//based on the digit in 'other' that we are multiplying by
-			for(int j = 0; j < numZeros; j++) {
-				scalarPtr.digit = 0;
-				scalarPtr.next = new DigitNode(0,null);
-				scalarPtr = scalarPtr.next;
+		if(exponent.negative) {
+			base = base.modInverse(modulus);
+		}
+		if(base.isZero()) {
+			return base;
+		}
+		return new BigInteger(false, 
+				ModularArithmetic.modPow(base.mag(), exponent.mag(), modulus.mag()));
+	}
+	
+	/**
+	 * Returns the inverse of this BigInteger modulo the given positive modulus,
+	 * that is, the value x between 0 and modulus - 1 with this * x = 1 (mod modulus).
+	 * DOES NOT MODIFY this BigInteger.
+	 * 
+	 * @param modulus Positive BigInteger to invert by
+	 * @return A new BigInteger which is this^-1 mod modulus
+	 * @throws ArithmeticException If the modulus is not positive, or this
+	 *         BigInteger and the modulus are not relatively prime
+	 */
+	public BigInteger modInverse(BigInteger modulus) 
+	throws ArithmeticException {
+		BigInteger base = mod(modulus);
+		if(modulus.mag == null && modulus.compact == 1) {
+			return ZERO;
+		}
+		return new BigInteger(false, ModularArithmetic.modInverse(base.mag(), modulus.mag()));
+	}
+	
+	/**
+	 * Returns the greatest common divisor of the absolute values of this
+	 * BigInteger and the given one - DOES NOT MODIFY this BigInteger.
+	 * gcd(0, 0) is 0.
+	 * 
+	 * @param other Other BigInteger
+	 * @return A new nonnegative BigInteger which is gcd(|this|, |other|)
+	 */
+	public BigInteger gcd(BigInteger other) {
+		int[] otherMag = other == null ? Limbs.EMPTY : other.mag();
+		return new BigInteger(false, ModularArithmetic.gcd(this.mag(), otherMag));
+	}
+	
+	/**
+	 * Returns the BigInteger obtained by multiplying this BigInteger by itself
+	 * - DOES NOT MODIFY this BigInteger. This is cheaper than multiply for
+	 * very large values, since both factors only need to be transformed once.
+	 * 
+	 * @return A new BigInteger which is the square of this BigInteger.
+	 */
+	public BigInteger square() {
+		if(isZero()) {
+			return this;
+		}
+		if(mag == null && 2 * Long.numberOfLeadingZeros(Math.abs(compact)) >= 65) {
+			return valueOf(compact * compact);
+		}
+		return new BigInteger(false, Multiplication.square(mag()));
+	}
+
+	/**
+	 * Returns this BigInteger raised to the given power - DOES NOT MODIFY
+	 * this BigInteger. The power is built by repeated squaring, so it takes
+	 * about log2(exponent) squarings and multiplications.
+	 *
+	 * @param exponent Nonnegative exponent
+	 * @return A new BigInteger which is this^exponent; 0^0 is 1
+	 * @throws ArithmeticException If the exponent is negative, or the result
+	 *         would have more than Integer.MAX_VALUE digits
+	 */
+	public BigInteger pow(int exponent)
+	throws ArithmeticException {
+		if(exponent < 0) {
+			throw new ArithmeticException("Exponent must not be negative.");
+		}
+		if(exponent == 0) {
+			return ONE;
+		}
+		if(exponent == 1 || isZero()) {
+			return this;
+		}
+		boolean negativeResult = negative && (exponent & 1) != 0;
+
+		//Powers that fit in a long are multiplied out directly
+		if(mag == null) {
+			long abs = Math.abs(compact);
+			if(abs == 1) {
+				return negativeResult ? valueOf(-1) : ONE;
 			}
-			
-			//For every digit in this integer, multiply it
-			//by each digit in other and add the carry bits
-			int carry = 0;
-			for(DigitNode thisPtr = this.front; 
-					thisPtr != null; 
-					thisPtr = thisPtr.next) {
-				
-				//The carry needs to be added onto the product
-				int product = thisPtr.digit * otherPtr.digit + carry;
-				
-				carry = product / 10;
-				scalarPtr.digit = product % 10;
-				
-				//Only create the next node if we are not at the
-				//end of the integer
-				if(thisPtr.next != null) {
-					scalarPtr.next = new DigitNode(0,null);
-					scalarPtr = scalarPtr.next;
-				} else {
-					//Carry through the last carry bit if necessary
-					if(carry != 0)
-						scalarPtr.next = new DigitNode(carry,null);
-					break;
+			if((long)(64 - Long.numberOfLeadingZeros(abs)) * exponent <= 63) {
+				long result = 1;
+				for(int i = 0; i < exponent; i++) {
+					result *= abs;
 				}
+				return valueOf(negativeResult ? -result : result);
 			}
-			
-			//Add to answer the scalar multiple that we just got
-			answer = answer.add(scalarMultiple);
+		}
+		if((long)numDigits * exponent > Integer.MAX_VALUE) {
+			throw new ArithmeticException("Result is too large.");
+		}
+		return new BigInteger(negativeResult, Powers.pow(mag(), exponent));
+	}
+
+	/**
+	 * Returns the integer square root of this BigInteger, that is, the
+	 * largest integer whose square is at most this one - DOES NOT MODIFY
+	 * this BigInteger.
+	 *
+	 * @return A new BigInteger which is floor(sqrt(this))
+	 * @throws ArithmeticException If this BigInteger is negative
+	 */
+	public BigInteger sqrt()
+	throws ArithmeticException {
+		if(negative) {
+			throw new ArithmeticException("Cannot take the square root of a negative number.");
+		}
+		//Below 10^18 the root is below 10^9, and squares of it fit in a long
+		if(mag == null) {
+			long root = (long)Math.sqrt(compact);
+			while(root * root > compact) {
+				root--;
+			}
+			while((root + 1) * (root + 1) <= compact) {
+				root++;
+			}
+			return valueOf(root);
+		}
+		return new BigInteger(false, Powers.root(mag, 2));
+	}
+
+	/**
+	 * Returns the integer n-th root of this BigInteger, truncated toward
+	 * zero - DOES NOT MODIFY this BigInteger. Odd roots of negative numbers
+	 * are negative: the cube root of -30 is -3.
+	 *
+	 * @param n Degree of the root, at least 1
+	 * @return A new BigInteger which is the n-th root of this, truncated
+	 * @throws ArithmeticException If n is not positive, or n is even and this
+	 *         BigInteger is negative
+	 */
+	public BigInteger nthRoot(int n)
+	throws ArithmeticException {
+		if(n < 1) {
+			throw new ArithmeticException("Root degree must be positive.");
+		}
+		if(negative && (n & 1) == 0) {
+			throw new ArithmeticException("Cannot take an even root of a negative number.");
+		}
+		if(n == 1 || isZero()) {
+			return this;
+		}
+		if(n == 2) {
+			return sqrt();
+		}
+		return new BigInteger(negative, Powers.root(mag(), n));
+	}
+
+	/**
+	 * Returns the sum of all the given integers. This is much cheaper than
+	 * adding them up one at a time, since carries are only propagated once
+	 * in a long while instead of on every addition (see Reduction).
+	 *
+	 * @param values Integers to add, null elements count as zero
+	 * @return A new BigInteger which is the sum, 0 if there are no values
+	 */
+	public static BigInteger sum(Iterable<? extends BigInteger> values) {
+		return Reduction.sum(values);
+	}
+
+	/**
+	 * Returns the product of all the given integers, computed as a balanced
+	 * tree of multiplications so that the big products are between factors
+	 * of similar size.
+	 *
+	 * @param values Integers to multiply, null elements count as zero
+	 * @return A new BigInteger which is the product, 1 if there are no values
+	 */
+	public static BigInteger product(Iterable<? extends BigInteger> values) {
+		return Reduction.product(values, null);
+	}
+
+	/**
+	 * Returns the product of all the given integers like product, with the
+	 * subtrees and the large multiplications split into tasks on the given
+	 * fork/join pool.
+	 *
+	 * @param values Integers to multiply, null elements count as zero
+	 * @param pool Fork/join pool to run the product tree on
+	 * @return A new BigInteger which is the product, 1 if there are no values
+	 */
+	public static BigInteger productParallel(Iterable<? extends BigInteger> values, ForkJoinPool pool) {
+		return Reduction.product(values, pool);
+	}
+
+	/**
+	 * Returns n! = 1 * 2 * ... * n, computed as a balanced product tree.
+	 *
+	 * @param n Nonnegative integer
+	 * @return A new BigInteger which is n!, 1 for n = 0
+	 * @throws ArithmeticException If n is negative
+	 */
+	public static BigInteger factorial(int n)
+	throws ArithmeticException {
+		return factorialParallel(n, null);
+	}
+
+	/**
+	 * Returns n! like factorial, with the product tree split into tasks on
+	 * the given fork/join pool.
+	 *
+	 * @param n Nonnegative integer
+	 * @param pool Fork/join pool to run the product tree on
+	 * @return A new BigInteger which is n!, 1 for n = 0
+	 * @throws ArithmeticException If n is negative
+	 */
+	public static BigInteger factorialParallel(int n, ForkJoinPool pool)
+	throws ArithmeticException {
+		if(n < 0) {
+			throw new ArithmeticException("Factorial of a negative number is undefined.");
+		}
+		return new BigInteger(false, Reduction.rangeProduct(2, n, pool));
+	}
+
+	/**
+	 * Returns the binomial coefficient "n choose k", the number of ways to
+	 * pick k items out of n. The falling product n * (n-1) * ... * (n-k+1)
+	 * and k! are both built as product trees, and divided once at the end.
+	 *
+	 * @param n Nonnegative number of items
+	 * @param k Number of items to pick
+	 * @return A new BigInteger which is n! / (k! (n-k)!), 0 if k is not
+	 *         between 0 and n
+	 * @throws ArithmeticException If n is negative
+	 */
+	public static BigInteger binomial(int n, int k)
+	throws ArithmeticException {
+		if(n < 0) {
+			throw new ArithmeticException("Binomial coefficient of a negative number is undefined.");
+		}
+		if(k < 0 || k > n) {
+			return ZERO;
+		}
+		k = Math.min(k, n - k);
+		int[] numerator = Reduction.rangeProduct(n - k + 1L, n, null);
+		int[] denominator = Reduction.rangeProduct(2, k, null);
+		return new BigInteger(false, Division.divideAndRemainder(numerator, denominator)[0]);
+	}
+
+	/**
+	 * Writes this BigInteger to a data output in a compact, versioned binary
+	 * format (see BinaryFormat), which readFrom reads back. This is much
+	 * cheaper than going through toString and parse.
+	 *
+	 * @param out Output to write to
+	 * @throws IOException If the output cannot be written
+	 */
+	public void writeTo(DataOutput out)
+	throws IOException {
+		BinaryFormat.write(out, negative, mag());
+	}
+
+	/**
+	 * Reads a BigInteger that was written by writeTo.
+	 *
+	 * @param in Input to read from
+	 * @return BigInteger instance that stores the integer read
+	 * @throws IOException If the input cannot be read, ends early, or does not
+	 *         hold a valid BigInteger
+	 */
+	public static BigInteger readFrom(DataInput in)
+	throws IOException {
+		return BinaryFormat.read(in);
+	}
+
+	/**
+	 * Encodes this BigInteger in the same binary format as writeTo.
+	 *
+	 * @return A new buffer holding the encoding, from position 0 to its limit
+	 */
+	public ByteBuffer toByteBuffer() {
+		return BinaryFormat.toByteBuffer(negative, mag());
+	}
+
+	/**
+	 * Decodes a BigInteger encoded by toByteBuffer or writeTo, starting at the
+	 * buffer's position. The position is moved past the encoding, so several
+	 * BigIntegers can be read from one buffer in a row.
+	 *
+	 * @param buf Buffer to read from
+	 * @return BigInteger instance that stores the integer read
+	 * @throws IllegalArgumentException If the buffer does not hold a valid BigInteger
+	 */
+	public static BigInteger fromByteBuffer(ByteBuffer buf)
+	throws IllegalArgumentException {
+		if(buf == null) {
+			throw new IllegalArgumentException("Invalid BigInteger data.");
+		}
+		return BinaryFormat.fromByteBuffer(buf);
+	}
+
+	/**
+	 * Converts this BigInteger to a java.math.BigInteger with the same value.
+	 *
+	 * @return Equal java.math.BigInteger
+	 */
+	public java.math.BigInteger toJavaBigInteger() {
+		if(mag == null) {
+			return java.math.BigInteger.valueOf(compact);
+		}
+		java.math.BigInteger result = RadixConversion.toJava(mag);
+		return negative ? result.negate() : result;
+	}
+
+	/**
+	 * Converts a java.math.BigInteger to a BigInteger with the same value.
+	 *
+	 * @param value Value to convert, null counts as zero
+	 * @return BigInteger instance that stores the value
+	 */
+	public static BigInteger fromJavaBigInteger(java.math.BigInteger value) {
+		if(value == null) {
+			return ZERO;
+		}
+		if(value.bitLength() < 60) {
+			return valueOf(value.longValue());
+		}
+		return new BigInteger(value.signum() < 0, RadixConversion.fromJava(value.abs()));
+	}
+
+	/**
+	 * Compares this BigInteger with another by value. Signs are compared
+	 * first, then digit counts, and only integers of the same length have
+	 * their limbs compared, from the most significant one down to the first
+	 * that differs.
+	 *
+	 * @param other BigInteger to compare with
+	 * @return Negative, zero or positive as this integer is less than, equal
+	 *         to, or greater than other
+	 */
+	public int compareTo(BigInteger other) {
+		if(this.negative != other.negative) {
+			return this.negative ? -1 : 1;
+		}
+		if(this.mag == null && other.mag == null) {
+			return Long.compare(this.compact, other.compact);
 		}
 		
-		//Set the negative value of the answer based on the scenario
-		//(sign is + if +*+ or -*-, and is - if +*-)
-		//This is done after the multiplication since add might override the sign
-		if(this.negative == other.negative) {
-			answer.negative = false;
+		//An inline magnitude is always below one stored in limbs
+		int cmp;
+		if(this.mag == null) {
+			cmp = -1;
+		} else if(other.mag == null) {
+			cmp = 1;
 		} else {
-			answer.negative = true;
+			cmp = Limbs.compare(this.mag, other.mag);
 		}
-		
-		//Keep track of the last non-zero digit for truncating leading zeros
-		int count = 0, lastNonzero = 0;
-		answer.numDigits = 0;
-		for(DigitNode ptr = answer.front; ptr != null; ptr = ptr.next, count++) {
-			if(ptr.digit != 0) {
-				lastNonzero = count;
+		return this.negative ? -cmp : cmp;
+	}
+	
+	/* (non-Javadoc)
+	 * @see java.lang.Object#equals(java.lang.Object)
+	 */
+	public boolean equals(Object obj) {
+		if(obj == this) {
+			return true;
+		}
+		if(!(obj instanceof BigInteger)) {
+			return false;
+		}
+		BigInteger other = (BigInteger)obj;
+		if(this.mag == null || other.mag == null) {
+			return this.mag == other.mag && this.compact == other.compact;
+		}
+		return this.negative == other.negative && this.numDigits == other.numDigits
+				&& Arrays.equals(this.mag, other.mag);
+	}
+	
+	/* (non-Javadoc)
+	 * @see java.lang.Object#hashCode()
+	 */
+	public int hashCode() {
+		//Every value has exactly one representation, so hashing it directly
+		//agrees with equals
+		int h = hash;
+		if(h == 0) {
+			if(mag == null) {
+				h = (int)(compact ^ (compact >>> 32));
+			} else {
+				h = 31 * Arrays.hashCode(mag) + (negative ? 1 : 0);
 			}
+			hash = h;
 		}
+		return h;
+	}
+	
+	/**
+	 * Sorts an array of BigIntegers into ascending order. The integers are
+	 * first bucketed by sign and number of digits, which is a sort of plain
+	 * longs, and only integers that share a bucket are compared in full.
+	 * The sort is stable.
+	 * 
+	 * @param values Array to sort, in place; must not contain null
+	 */
+	public static void sort(BigInteger[] values) {
+		int n = values.length;
 		
-		//Loop through to increment numDigits correctly and truncate leading zeros
-		count = 0;
-		for(DigitNode ptr = answer.front; ptr != null; ptr = ptr.next, count++) {
-			answer.numDigits++;
-			if(count == lastNonzero) {
-				ptr.next = null;
-				break;
-			}
+		//Key each integer by its signed digit count, with its index in the
+		//low half so that equal keys keep their original order
+		long[] keys = new long[n];
+		for(int i = 0; i < n; i++) {
+			int digits = values[i].negative ? -values[i].numDigits : values[i].numDigits;
+			keys[i] = ((long)digits << 32) | i;
+		}
+		Arrays.sort(keys);
+		BigInteger[] sorted = new BigInteger[n];
+		for(int i = 0; i < n; i++) {
+			sorted[i] = values[(int)keys[i]];
 		}
 		
-		//If the number is zero, adjust the variables to represent 0 
-		if(answer.numDigits == 1 && answer.front.digit == 0
-			|| answer.numDigits == 0) {
-			answer.negative = false;
-			answer.front = null;
-			answer.numDigits = 0;
+		for(int from = 0; from < n; ) {
+			int to = from + 1;
+			while(to < n && keys[to] >> 32 == keys[from] >> 32) {
+				to++;
+			}
+			if(to - from > 1) {
+				Arrays.sort(sorted, from, to);
+			}
+			from = to;
 		}
-
-		return answer;
+		System.arraycopy(sorted, 0, values, 0, n);
 	}
 	
 	/* (non-Javadoc)
 	 * @see java.lang.Object#toString()
 	 */
 	public String toString() {
-		if (front == null) {
-			return "0";
+		if (mag == null) {
+			return Long.toString(compact);
 		}
 		
-		String retval = front.digit + "";
-		for (DigitNode curr = front.next; curr != null; curr = curr.next) {
-				retval = curr.digit + retval;
+		//Write the digits straight into a buffer, from the ones place up.
+		//Every limb but the most significant one is padded to nine digits.
+		char[] retval = new char[numDigits + (negative ? 1 : 0)];
+		int pos = retval.length;
+		for (int i = 0; i < mag.length - 1; i++) {
+			int limb = mag[i];
+			for (int j = 0; j < Limbs.BASE_DIGITS; j++) {
+				retval[--pos] = (char)('0' + limb % 10);
+				limb /= 10;
+			}
+		}
+		for (int limb = mag[mag.length-1]; limb != 0; limb /= 10) {
+			retval[--pos] = (char)('0' + limb % 10);
 		}
 		
 		if (negative) {
-			retval = '-' + retval;
+			retval[0] = '-';
 		}
 		
-		return retval;
+		return new String(retval);
 	}
 	
 }
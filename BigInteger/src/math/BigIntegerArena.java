@@ -0,0 +1,484 @@
+package math;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This class holds the limbs of short-lived integers outside the Java heap,
+ * for batch jobs that would otherwise create millions of intermediate
+ * BigIntegers for the garbage collector to chase. Limbs are handed out from
+ * large direct buffers by bumping a pointer, and the whole batch is released
+ * at once by reset, which makes the buffers available for the next batch.
+ *
+ * Integers in an arena are Values. A Value stays valid until the next reset
+ * or close of its arena; using it afterwards throws IllegalStateException.
+ * Results that have to outlive the batch are copied out with toBigInteger.
+ *
+ * The arena only keeps the heap quiet for small operands. Products at or
+ * above the Karatsuba threshold are computed on the heap, see multiply.
+ * Java also has no way to free a direct buffer on demand: close drops the
+ * arena's buffers, but their native memory is only returned once the
+ * garbage collector gets round to the buffer objects. Reusing one arena
+ * with reset is what keeps native memory flat.
+ *
+ * An arena is not thread safe.
+ *
+ */
+public final class BigIntegerArena implements AutoCloseable {
+
+	/**
+	 * Default size of one arena buffer, in limbs (4 MB)
+	 */
+	public static final int DEFAULT_CHUNK_LIMBS = 1 << 20;
+
+	/**
+	 * Size of a new buffer, in limbs, unless one integer needs more
+	 */
+	private final int chunkLimbs;
+
+	/**
+	 * Buffers allocated so far, kept across resets
+	 */
+	private final List<IntBuffer> chunks = new ArrayList<>();
+
+	/**
+	 * Index of the buffer being filled
+	 */
+	private int current;
+
+	/**
+	 * First free limb of the buffer being filled
+	 */
+	private int top;
+
+	/**
+	 * Incremented on every reset, so that Values from earlier batches can be
+	 * told apart
+	 */
+	private int generation;
+
+	/**
+	 * True once the arena has been closed
+	 */
+	private boolean closed;
+
+	/**
+	 * Heap scratch space for multiplication, reused between calls
+	 */
+	private int[] scratch = new int[0];
+
+	/**
+	 * Creates an arena with buffers of the default size.
+	 */
+	public BigIntegerArena() {
+		this(DEFAULT_CHUNK_LIMBS);
+	}
+
+	/**
+	 * Creates an arena with buffers of the given size. No memory is taken
+	 * until the first integer is stored.
+	 *
+	 * @param chunkLimbs Size of each buffer, in limbs; larger integers get a
+	 *        buffer of their own size
+	 * @throws IllegalArgumentException If chunkLimbs is not positive
+	 */
+	public BigIntegerArena(int chunkLimbs)
+	throws IllegalArgumentException {
+		if(chunkLimbs < 1) {
+			throw new IllegalArgumentException("Chunk size must be positive.");
+		}
+		this.chunkLimbs = chunkLimbs;
+	}
+
+	/**
+	 * Copies a BigInteger into this arena.
+	 *
+	 * @param value Integer to copy, null counts as zero
+	 * @return The same integer, stored in this arena
+	 * @throws IllegalStateException If this arena is closed
+	 */
+	public Value copyOf(BigInteger value)
+	throws IllegalStateException {
+		checkOpen();
+		if(value == null || value.isZero()) {
+			return allocate(0, false);
+		}
+		Value result;
+		if(value.mag == null) {
+			long abs = Math.abs(value.compact);
+			result = allocate(abs < Limbs.BASE ? 1 : 2, value.negative);
+			result.limbs.put(result.offset, (int)(abs % Limbs.BASE));
+			if(result.length == 2) {
+				result.limbs.put(result.offset + 1, (int)(abs / Limbs.BASE));
+			}
+		} else {
+			int[] mag = value.mag;
+			result = allocate(mag.length, value.negative);
+			result.limbs.position(result.offset);
+			result.limbs.put(mag);
+		}
+		return result;
+	}
+
+	/**
+	 * Adds two integers of this arena, and stores the sum in this arena.
+	 * NOTE that either or both of the integers involved could be negative.
+	 *
+	 * @param a First integer
+	 * @param b Second integer
+	 * @return a + b, stored in this arena
+	 * @throws IllegalArgumentException If a Value belongs to another arena
+	 * @throws IllegalStateException If this arena is closed, or a Value was
+	 *         released by reset
+	 */
+	public Value add(Value a, Value b)
+	throws IllegalArgumentException, IllegalStateException {
+		check(a);
+		check(b);
+		return add(a, b, b.negative);
+	}
+
+	/**
+	 * Subtracts an integer of this arena from another one, and stores the
+	 * difference in this arena.
+	 *
+	 * @param a Integer to subtract from
+	 * @param b Integer to subtract
+	 * @return a - b, stored in this arena
+	 * @throws IllegalArgumentException If a Value belongs to another arena
+	 * @throws IllegalStateException If this arena is closed, or a Value was
+	 *         released by reset
+	 */
+	public Value subtract(Value a, Value b)
+	throws IllegalArgumentException, IllegalStateException {
+		check(a);
+		check(b);
+		return add(a, b, !b.negative);
+	}
+
+	/**
+	 * Multiplies two integers of this arena, and stores the product in this
+	 * arena. Operands below the Karatsuba threshold are multiplied by
+	 * schoolbook in a scratch array that the arena reuses. Larger ones are
+	 * copied to the heap and go through Multiplication, which allocates its
+	 * own temporary arrays there, so for them the arena saves only the
+	 * final BigInteger; only the product is stored off the heap.
+	 *
+	 * @param a First integer
+	 * @param b Second integer
+	 * @return a * b, stored in this arena
+	 * @throws IllegalArgumentException If a Value belongs to another arena
+	 * @throws IllegalStateException If this arena is closed, or a Value was
+	 *         released by reset
+	 */
+	public Value multiply(Value a, Value b)
+	throws IllegalArgumentException, IllegalStateException {
+		check(a);
+		check(b);
+		boolean negativeResult = a.negative != b.negative;
+		if(a.length == 0 || b.length == 0) {
+			return allocate(0, false);
+		}
+		if(Math.min(a.length, b.length) >= Multiplication.KARATSUBA_THRESHOLD) {
+			int[] product = Multiplication.multiply(a.magnitude(), b.magnitude());
+			Value result = allocate(product.length, negativeResult);
+			result.limbs.position(result.offset);
+			result.limbs.put(product);
+			return result;
+		}
+
+		//Schoolbook on copies in the scratch array, which is cheaper than
+		//going through the buffer for every partial product
+		int la = a.length, lb = b.length, ro = la + lb;
+		int[] s = scratch(2 * ro);
+		load(a, s, 0);
+		load(b, s, la);
+		for(int i = ro; i < 2 * ro; i++) {
+			s[i] = 0;
+		}
+		for(int j = 0; j < lb; j++) {
+			long multiplier = s[la + j];
+			if(multiplier == 0) {
+				continue;
+			}
+			long carry = 0;
+			for(int i = 0; i < la; i++) {
+				long product = s[i] * multiplier + s[ro + i + j] + carry;
+				carry = product / Limbs.BASE;
+				s[ro + i + j] = (int)(product - carry * Limbs.BASE);
+			}
+			s[ro + j + la] = (int)carry;
+		}
+		return store(s, ro, la + lb, negativeResult);
+	}
+
+	/**
+	 * Releases every Value of this arena at once. The buffers are kept and
+	 * reused for the next batch, so a job that resets between batches stops
+	 * allocating once the buffers cover its largest batch.
+	 *
+	 * @throws IllegalStateException If this arena is closed
+	 */
+	public void reset()
+	throws IllegalStateException {
+		checkOpen();
+		current = 0;
+		top = 0;
+		generation++;
+	}
+
+	/**
+	 * Releases every Value of this arena and drops its buffers. The arena
+	 * cannot be used afterwards; closing it again does nothing.
+	 *
+	 * The native memory of the buffers is not freed here, but when the
+	 * garbage collector collects them, which may be much later.
+	 */
+	public void close() {
+		chunks.clear();
+		closed = true;
+		generation++;
+	}
+
+	/**
+	 * Returns the memory reserved by this arena so far.
+	 *
+	 * @return Total size of the buffers, in limbs
+	 */
+	public long capacity() {
+		long total = 0;
+		for(IntBuffer chunk : chunks) {
+			total += chunk.capacity();
+		}
+		return total;
+	}
+
+	/**
+	 * Adds a to b, where b counts as negative if bNegative is set. Like
+	 * multiply, this works on copies in the scratch array.
+	 */
+	private Value add(Value a, Value b, boolean bNegative) {
+		int la = a.length, lb = b.length, ro = la + lb;
+		int[] s = scratch(ro + Math.max(la, lb) + 1);
+		load(a, s, 0);
+		load(b, s, la);
+		if(a.negative == bNegative) {
+			return store(s, ro, addMagnitudes(s, 0, la, la, lb, ro), a.negative);
+		}
+		//Different signs: the larger magnitude decides the sign
+		int cmp = compareMagnitudes(s, 0, la, la, lb);
+		if(cmp == 0) {
+			return allocate(0, false);
+		} else if(cmp > 0) {
+			return store(s, ro, subtractMagnitudes(s, 0, la, la, lb, ro), a.negative);
+		}
+		return store(s, ro, subtractMagnitudes(s, la, lb, 0, la, ro), bNegative);
+	}
+
+	/**
+	 * Adds the la limbs of s at ai to the lb limbs at bi, writes the sum at
+	 * ri, and returns its length in limbs.
+	 */
+	private static int addMagnitudes(int[] s, int ai, int la, int bi, int lb, int ri) {
+		//Make a the longer of the two so the tail loop only walks one run
+		if(la < lb) {
+			int tmp = ai;
+			ai = bi;
+			bi = tmp;
+			tmp = la;
+			la = lb;
+			lb = tmp;
+		}
+		int carry = 0, i = 0;
+		for(; i < lb; i++) {
+			int sum = s[ai+i] + s[bi+i] + carry;
+			carry = sum >= Limbs.BASE ? 1 : 0;
+			s[ri+i] = sum - carry * Limbs.BASE;
+		}
+		for(; i < la; i++) {
+			int sum = s[ai+i] + carry;
+			carry = sum >= Limbs.BASE ? 1 : 0;
+			s[ri+i] = sum - carry * Limbs.BASE;
+		}
+		s[ri+i] = carry;
+		return la + 1;
+	}
+
+	/**
+	 * Subtracts the lb limbs of s at bi from the larger la limbs at ai,
+	 * writes the difference at ri, and returns its length in limbs before
+	 * leading zeros are dropped.
+	 */
+	private static int subtractMagnitudes(int[] s, int ai, int la, int bi, int lb, int ri) {
+		int borrow = 0, i = 0;
+		for(; i < lb; i++) {
+			int diff = s[ai+i] - s[bi+i] - borrow;
+			borrow = diff < 0 ? 1 : 0;
+			s[ri+i] = diff + borrow * Limbs.BASE;
+		}
+		for(; i < la; i++) {
+			int diff = s[ai+i] - borrow;
+			borrow = diff < 0 ? 1 : 0;
+			s[ri+i] = diff + borrow * Limbs.BASE;
+		}
+		return la;
+	}
+
+	/**
+	 * Compares the la limbs of s at ai with the lb limbs at bi, like
+	 * Limbs.compare.
+	 */
+	private static int compareMagnitudes(int[] s, int ai, int la, int bi, int lb) {
+		if(la != lb) {
+			return la < lb ? -1 : 1;
+		}
+		for(int i = la - 1; i >= 0; i--) {
+			if(s[ai+i] != s[bi+i]) {
+				return s[ai+i] < s[bi+i] ? -1 : 1;
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * Copies the limbs of a Value into the scratch array at the given index.
+	 */
+	private static void load(Value value, int[] s, int at) {
+		value.limbs.position(value.offset);
+		value.limbs.get(s, at, value.length);
+	}
+
+	/**
+	 * Stores len limbs of the scratch array, from the given index and without
+	 * their leading zeros, as a new Value.
+	 */
+	private Value store(int[] s, int from, int len, boolean negative) {
+		while(len > 0 && s[from+len-1] == 0) {
+			len--;
+		}
+		Value result = allocate(len, negative && len != 0);
+		result.limbs.position(result.offset);
+		result.limbs.put(s, from, len);
+		return result;
+	}
+
+	/**
+	 * Reserves the given number of limbs, moving on to the next buffer (or
+	 * a new one) when the current one is full.
+	 */
+	private Value allocate(int len, boolean negative) {
+		if(current >= chunks.size() || chunks.get(current).capacity() - top < len) {
+			if(current < chunks.size()) {
+				current++;
+			}
+			top = 0;
+			if(current == chunks.size()) {
+				chunks.add(newChunk(len));
+			} else if(chunks.get(current).capacity() < len) {
+				chunks.set(current, newChunk(len));
+			}
+		}
+		Value result = new Value(this, chunks.get(current), top, len, negative);
+		top += len;
+		return result;
+	}
+
+	private int[] scratch(int len) {
+		if(scratch.length < len) {
+			scratch = new int[Math.max(len, scratch.length * 2)];
+		}
+		return scratch;
+	}
+
+	private IntBuffer newChunk(int len) {
+		int limbs = Math.max(len, chunkLimbs);
+		return ByteBuffer.allocateDirect(limbs * 4).order(ByteOrder.nativeOrder()).asIntBuffer();
+	}
+
+	private void checkOpen() {
+		if(closed) {
+			throw new IllegalStateException("Arena is closed.");
+		}
+	}
+
+	private void check(Value value) {
+		checkOpen();
+		if(value.arena != this) {
+			throw new IllegalArgumentException("Value belongs to another arena.");
+		}
+		if(value.generation != generation) {
+			throw new IllegalStateException("Value was released by reset.");
+		}
+	}
+
+	/**
+	 * An integer stored in a BigIntegerArena: a sign, and a run of limbs in
+	 * one of the arena's buffers, Least Significant limb FIRST and without
+	 * leading zero limbs.
+	 */
+	public static final class Value {
+		private final BigIntegerArena arena;
+		private final int generation;
+		private final IntBuffer limbs;
+		private final int offset;
+		private final int length;
+		private final boolean negative;
+
+		private Value(BigIntegerArena arena, IntBuffer limbs, int offset, int length, boolean negative) {
+			this.arena = arena;
+			this.generation = arena.generation;
+			this.limbs = limbs;
+			this.offset = offset;
+			this.length = length;
+			this.negative = negative;
+		}
+
+		/**
+		 * Returns the sign of this integer.
+		 *
+		 * @return -1, 0 or 1 as this integer is negative, zero or positive
+		 * @throws IllegalStateException If the arena was reset or closed
+		 */
+		public int signum()
+		throws IllegalStateException {
+			arena.check(this);
+			return length == 0 ? 0 : negative ? -1 : 1;
+		}
+
+		/**
+		 * Copies this integer out of the arena, so it outlives the batch.
+		 *
+		 * @return A new BigInteger with the same value
+		 * @throws IllegalStateException If the arena was reset or closed
+		 */
+		public BigInteger toBigInteger()
+		throws IllegalStateException {
+			arena.check(this);
+			return new BigInteger(negative, magnitude());
+		}
+
+		/**
+		 * Returns the decimal value of this integer.
+		 *
+		 * @throws IllegalStateException If the arena was reset or closed
+		 */
+		public String toString()
+		throws IllegalStateException {
+			return toBigInteger().toString();
+		}
+
+		/**
+		 * Copies the limbs of this integer into a new array.
+		 */
+		private int[] magnitude() {
+			int[] mag = new int[length];
+			IntBuffer view = limbs.duplicate();
+			view.position(offset);
+			view.get(mag);
+			return mag;
+		}
+	}
+}
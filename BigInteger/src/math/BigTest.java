@@ -3,10 +3,16 @@ package math;
 import java.io.IOException;
 import java.util.Scanner;
 
+import math.expr.Evaluator;
+import math.expr.ExpressionParser;
+
 public class BigTest {
 
 	static Scanner sc;
 	
+	static ExpressionParser expressionParser = new ExpressionParser();
+	static Evaluator evaluator = new Evaluator();
+	
 	public static void parse() 
 	throws IOException {
 		System.out.print("\tEnter integer => ");
@@ -50,6 +56,40 @@ public class BigTest {
 		
 	}
 	
+	public static void divide() 
+	throws IOException {
+		System.out.print("\tEnter dividend => ");
+		sc.nextLine();
+		String integer = sc.nextLine();
+		BigInteger firstBigInteger = BigInteger.parse(integer);
+		
+		System.out.print("\tEnter divisor => ");
+		integer = sc.nextLine();
+		BigInteger secondBigInteger = BigInteger.parse(integer);
+		
+		try {
+			BigInteger[] qr = firstBigInteger.divideAndRemainder(secondBigInteger);
+			System.out.println("\t\tQuotient: " + qr[0]);
+			System.out.println("\t\tRemainder: " + qr[1]);
+		} catch (ArithmeticException e) {
+			System.out.println("\t\t" + e.getMessage());
+		}
+	}
+	
+	public static void expression() 
+	throws IOException {
+		System.out.print("\tEnter expression (names assigned with = are kept) => ");
+		sc.nextLine();
+		String expression = sc.nextLine();
+		try {
+			System.out.println("\t\tValue = " + evaluator.evaluate(expressionParser.parse(expression)));
+		} catch (IllegalArgumentException e) {
+			System.out.println("\t\t" + e.getMessage());
+		} catch (ArithmeticException e) {
+			System.out.println("\t\t" + e.getMessage());
+		}
+	}
+	
 	public static void main(String[] args) 
 	throws IOException {
 		
@@ -95,9 +135,9 @@ public class BigTest {
 				if(bigInt.numDigits != actual.length()) {
 					//The only time when they shouldn't match is when answer is 0 (so the string length would 
 					// be one, whereas the actual numDigits should be zero)
-					//If this is the case, make sure that front is null AND numDigits is 0.
-					if(bigInt.front != null || bigInt.numDigits != 0) {
-						System.out.println("Null: " + (bigInt.front == null));
+					//If this is the case, make sure that mag is empty AND numDigits is 0.
+					if(bigInt.mag().length != 0 || bigInt.numDigits != 0) {
+						System.out.println("Empty: " + (bigInt.mag().length == 0));
 						System.out.println("Your number of digits " + bigInt.numDigits + " does not equal " + actual.length());
 						System.out.println("Your answer of " + answer 
 								+ " does not match the actual answer of " + actual
@@ -146,9 +186,9 @@ public class BigTest {
 				if(bigInt.numDigits != actual.length()) {
 					//The only time when they shouldn't match is when answer is 0 (so the string length would 
 					// be one, whereas the actual numDigits should be zero)
-					//If this is the case, make sure that front is null AND numDigits is 0.
-					if(bigInt.front != null || bigInt.numDigits != 0) {
-						System.out.println("Null: " + (bigInt.front == null));
+					//If this is the case, make sure that mag is empty AND numDigits is 0.
+					if(bigInt.mag().length != 0 || bigInt.numDigits != 0) {
+						System.out.println("Empty: " + (bigInt.mag().length == 0));
 						System.out.println("Your number of digits " + bigInt.numDigits + " does not equal " + actual.length());
 						System.out.println("Your answer of " + answer 
 								+ " does not match the actual answer of " + actual
@@ -166,13 +206,15 @@ public class BigTest {
 				case 'p' : parse(); break;
 				case 'a' : add(); break;
 				case 'm' : multiply(); break;
+				case 'd' : divide(); break;
+				case 'e' : expression(); break;
 				default: System.out.println("Incorrect choice"); 
 			}
 		}
 	}
 
 	private static char getChoice() {
-		System.out.print("\n(p)arse, (a)dd, (m)ultiply, or (q)uit? => ");
+		System.out.print("\n(p)arse, (a)dd, (m)ultiply, (d)ivide, (e)xpression, or (q)uit? => ");
 		String in = sc.next();
 		char choice;
 		if (in == null || in.length() == 0) {
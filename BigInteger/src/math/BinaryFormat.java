@@ -0,0 +1,179 @@
+package math;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Binary encoding of a BigInteger, for storing and exchanging values without
+ * a round trip through decimal text. Since the limbs are already decimal,
+ * they are written exactly as they are held in memory.
+ *
+ * The layout, with every multi-byte value big-endian (the DataOutput order):
+ *    byte   format version, currently 1
+ *    byte   sign, 0 for zero or positive and 1 for negative
+ *    int    number of limbs n
+ *    int[n] limbs, Least Significant limb FIRST, each below 10^9, with a
+ *           nonzero last limb
+ * Zero is a positive sign and no limbs, so it takes 6 bytes.
+ *
+ */
+final class BinaryFormat {
+
+	/**
+	 * Version written into the first byte
+	 */
+	static final int VERSION = 1;
+
+	/**
+	 * Size of the version, sign and limb count, in bytes
+	 */
+	static final int HEADER_SIZE = 6;
+
+	/**
+	 * Limbs moved per block when going through a DataInput or DataOutput
+	 */
+	private static final int BLOCK_LIMBS = 2048;
+
+	// prevent instantiation
+	private BinaryFormat() { }
+
+	/**
+	 * Writes a signed magnitude to a data output.
+	 *
+	 * @param out Output to write to
+	 * @param negative Sign of the value
+	 * @param mag Normalized magnitude of the value
+	 * @throws IOException If the output cannot be written
+	 */
+	static void write(DataOutput out, boolean negative, int[] mag) throws IOException {
+		out.writeByte(VERSION);
+		out.writeByte(negative ? 1 : 0);
+		out.writeInt(mag.length);
+
+		//Going through a byte block saves a call per byte on most outputs
+		ByteBuffer block = ByteBuffer.allocate(Math.min(mag.length, BLOCK_LIMBS) * 4);
+		for(int i = 0; i < mag.length; ) {
+			block.clear();
+			for(int end = Math.min(mag.length, i + BLOCK_LIMBS); i < end; i++) {
+				block.putInt(mag[i]);
+			}
+			out.write(block.array(), 0, block.position());
+		}
+	}
+
+	/**
+	 * Reads a value written by write.
+	 *
+	 * @param in Input to read from
+	 * @return The value that was read
+	 * @throws IOException If the input cannot be read, ends early, or does not
+	 *         hold a valid value
+	 */
+	static BigInteger read(DataInput in) throws IOException {
+		int version = in.readUnsignedByte();
+		if(version != VERSION) {
+			throw new IOException("Unsupported BigInteger format version " + version + ".");
+		}
+		int sign = in.readUnsignedByte();
+		int length = in.readInt();
+		if(sign > 1 || length < 0) {
+			throw new IOException("Invalid BigInteger data.");
+		}
+
+		//Grow the array as the limbs arrive instead of trusting the count up
+		//front, so a corrupt count fails at the end of the input rather than
+		//with a huge allocation
+		int[] mag = new int[Math.min(length, BLOCK_LIMBS)];
+		byte[] block = new byte[Math.min(length, BLOCK_LIMBS) * 4];
+		for(int i = 0; i < length; ) {
+			int count = Math.min(length - i, BLOCK_LIMBS);
+			in.readFully(block, 0, count * 4);
+			if(i + count > mag.length) {
+				int[] grown = new int[(int)Math.min(length, 2L * mag.length)];
+				System.arraycopy(mag, 0, grown, 0, i);
+				mag = grown;
+			}
+			ByteBuffer limbs = ByteBuffer.wrap(block, 0, count * 4);
+			for(int end = i + count; i < end; i++) {
+				mag[i] = limbs.getInt();
+			}
+		}
+		if(!isValid(sign, mag)) {
+			throw new IOException("Invalid BigInteger data.");
+		}
+		return new BigInteger(sign == 1, length == 0 ? Limbs.EMPTY : mag);
+	}
+
+	/**
+	 * Encodes a signed magnitude into a new buffer.
+	 *
+	 * @param negative Sign of the value
+	 * @param mag Normalized magnitude of the value
+	 * @return Big-endian buffer holding the encoding, positioned at its start
+	 */
+	static ByteBuffer toByteBuffer(boolean negative, int[] mag) {
+		ByteBuffer buf = ByteBuffer.allocate(HEADER_SIZE + mag.length * 4);
+		buf.put((byte)VERSION);
+		buf.put((byte)(negative ? 1 : 0));
+		buf.putInt(mag.length);
+		buf.asIntBuffer().put(mag);
+		buf.clear();
+		return buf;
+	}
+
+	/**
+	 * Decodes a value from a buffer, starting at its position. The position
+	 * is moved past the value, so encodings can be read back to back.
+	 *
+	 * @param buf Buffer to read from, always read as big-endian
+	 * @return The value that was read
+	 * @throws IllegalArgumentException If the buffer does not hold a valid value
+	 */
+	static BigInteger fromByteBuffer(ByteBuffer buf) throws IllegalArgumentException {
+		if(buf.remaining() < HEADER_SIZE) {
+			throw new IllegalArgumentException("Invalid BigInteger data.");
+		}
+		ByteBuffer in = buf.duplicate().order(ByteOrder.BIG_ENDIAN);
+		int start = in.position();
+		int version = in.get(start) & 0xFF;
+		if(version != VERSION) {
+			throw new IllegalArgumentException("Unsupported BigInteger format version " + version + ".");
+		}
+		int sign = in.get(start + 1) & 0xFF;
+		int length = in.getInt(start + 2);
+		if(sign > 1 || length < 0 || length > (in.remaining() - HEADER_SIZE) / 4) {
+			throw new IllegalArgumentException("Invalid BigInteger data.");
+		}
+
+		int[] mag = length == 0 ? Limbs.EMPTY : new int[length];
+		in.position(start + HEADER_SIZE);
+		in.asIntBuffer().get(mag);
+		if(!isValid(sign, mag)) {
+			throw new IllegalArgumentException("Invalid BigInteger data.");
+		}
+		buf.position(start + HEADER_SIZE + length * 4);
+		return new BigInteger(sign == 1, mag);
+	}
+
+	/**
+	 * Checks that every limb is in range, the magnitude is normalized, and
+	 * zero is not marked negative.
+	 */
+	private static boolean isValid(int sign, int[] mag) {
+		if(mag.length == 0) {
+			return sign == 0;
+		}
+		if(mag[mag.length-1] == 0) {
+			return false;
+		}
+		for(int limb : mag) {
+			if(limb < 0 || limb >= Limbs.BASE) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
@@ -0,0 +1,170 @@
+package math;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Incremental parser for the integer format accepted by BigInteger.parse.
+ * Characters can be fed in any number of pieces, so a number can be read
+ * straight from a Reader, a buffer or a mapped file without ever being held
+ * as one String.
+ *
+ * The format is an optional sign followed by at least one digit, with any
+ * amount of leading and trailing space (every character up to ' ', the
+ * same ones String.trim removes). A digit is any character for which
+ * Character.digit(c, 10) gives a value.
+ *
+ * Digits are packed into base 10^9 limbs as they arrive, most significant
+ * first, and lined up into place when the input ends.
+ *
+ */
+final class DecimalParser {
+
+	/**
+	 * Parser states, in the order the input passes through them
+	 */
+	private static final int LEADING_SPACE = 0, SIGN = 1, DIGITS = 2, TRAILING_SPACE = 3;
+
+	private int state = LEADING_SPACE;
+	private boolean negative = false;
+
+	/**
+	 * Complete nine-digit chunks, Most Significant FIRST
+	 */
+	private int[] chunks = new int[16];
+	private int numChunks = 0;
+
+	/**
+	 * Chunk being filled, and the number of digits in it
+	 */
+	private int current = 0, currentDigits = 0;
+
+	/**
+	 * Feeds one character.
+	 *
+	 * @param c Next character of the input
+	 * @throws IllegalArgumentException If the input can no longer be a valid integer
+	 */
+	void accept(char c) throws IllegalArgumentException {
+		if(c <= ' ') {
+			if(state == SIGN) {
+				throw invalid();
+			} else if(state == DIGITS) {
+				state = TRAILING_SPACE;
+			}
+			return;
+		}
+
+		if(c == '-' || c == '+') {
+			if(state != LEADING_SPACE) {
+				throw invalid();
+			}
+			negative = c == '-';
+			state = SIGN;
+			return;
+		}
+
+		int digit = Character.digit(c, 10);
+		if(digit < 0 || state == TRAILING_SPACE) {
+			throw invalid();
+		}
+		state = DIGITS;
+
+		//Leading zeros carry no value
+		if(digit == 0 && numChunks == 0 && currentDigits == 0) {
+			return;
+		}
+		current = current * 10 + digit;
+		if(++currentDigits == Limbs.BASE_DIGITS) {
+			if(numChunks == chunks.length) {
+				chunks = Arrays.copyOf(chunks, chunks.length * 2);
+			}
+			chunks[numChunks++] = current;
+			current = 0;
+			currentDigits = 0;
+		}
+	}
+
+	/**
+	 * Feeds a range of characters.
+	 *
+	 * @param s Characters to read from
+	 * @param from First index to read
+	 * @param to Index to stop before
+	 * @throws IllegalArgumentException If the input can no longer be a valid integer
+	 */
+	void accept(CharSequence s, int from, int to) throws IllegalArgumentException {
+		for(int i = from; i < to; i++) {
+			accept(s.charAt(i));
+		}
+	}
+
+	/**
+	 * Feeds a range of characters.
+	 *
+	 * @param buf Characters to read from
+	 * @param from First index to read
+	 * @param to Index to stop before
+	 * @throws IllegalArgumentException If the input can no longer be a valid integer
+	 */
+	void accept(char[] buf, int from, int to) throws IllegalArgumentException {
+		for(int i = from; i < to; i++) {
+			accept(buf[i]);
+		}
+	}
+
+	/**
+	 * Feeds the remaining bytes of a buffer, one character per byte
+	 * (US-ASCII / ISO-8859-1). The buffer's position is not changed.
+	 *
+	 * @param buf Bytes to read from
+	 * @throws IllegalArgumentException If the input can no longer be a valid integer
+	 */
+	void accept(ByteBuffer buf) throws IllegalArgumentException {
+		for(int i = buf.position(), end = buf.limit(); i < end; i++) {
+			accept((char)(buf.get(i) & 0xFF));
+		}
+	}
+
+	/**
+	 * Ends the input and builds the integer.
+	 *
+	 * @return BigInteger instance that stores the input integer
+	 * @throws IllegalArgumentException If the input was not a valid integer
+	 */
+	BigInteger finish() throws IllegalArgumentException {
+		if(state != DIGITS && state != TRAILING_SPACE) {
+			throw invalid();
+		}
+		if(numChunks == 0 && currentDigits == 0) {
+			return BigInteger.ZERO;
+		}
+
+		//The chunks are full limbs counted from the top, so flip them to
+		//least significant first, then shift everything up past the digits of
+		//the partial chunk and put it in the ones place
+		int[] mag = numChunks < chunks.length ? chunks : Arrays.copyOf(chunks, numChunks + 1);
+		for(int i = 0, j = numChunks - 1; i < j; i++, j--) {
+			int tmp = mag[i];
+			mag[i] = mag[j];
+			mag[j] = tmp;
+		}
+		int shift = 1;
+		for(int i = 0; i < currentDigits; i++) {
+			shift *= 10;
+		}
+		long carry = current;
+		for(int i = 0; i < numChunks; i++) {
+			long value = mag[i] * (long)shift + carry;
+			carry = value / Limbs.BASE;
+			mag[i] = (int)(value - carry * Limbs.BASE);
+		}
+		mag[numChunks] = (int)carry;
+		chunks = null;
+		return new BigInteger(negative, Limbs.strip(mag, numChunks + 1));
+	}
+
+	private static IllegalArgumentException invalid() {
+		return new IllegalArgumentException("Please input a valid number.");
+	}
+}
@@ -0,0 +1,238 @@
+package math;
+
+import java.util.Arrays;
+
+/**
+ * Division of normalized magnitudes (see Limbs), with a quotient and
+ * remainder for every call. It picks an algorithm by operand size:
+ *  - short division for single-limb divisors,
+ *  - Knuth's Algorithm D (TAOCP vol. 2, 4.3.1) for small divisors,
+ *  - recursive Burnikel-Ziegler division for large ones, which turns one big
+ *    division into a few half-size divisions and multiplications, so it
+ *    profits from the fast multiplication engine.
+ *
+ */
+final class Division {
+
+	/**
+	 * Divisor length in limbs below which Algorithm D is used
+	 */
+	static final int BURNIKEL_ZIEGLER_THRESHOLD = 80;
+
+	/**
+	 * Minimum difference in limbs between dividend and divisor for
+	 * Burnikel-Ziegler to pay off
+	 */
+	static final int BURNIKEL_ZIEGLER_OFFSET = 40;
+
+	/**
+	 * The magnitude of one
+	 */
+	private static final int[] ONE = {1};
+
+	// prevent instantiation
+	private Division() { }
+
+	/**
+	 * Divides one magnitude by another.
+	 *
+	 * @param a Dividend magnitude
+	 * @param b Divisor magnitude, must not be zero
+	 * @return Two normalized magnitudes, the quotient followed by the remainder
+	 */
+	static int[][] divideAndRemainder(int[] a, int[] b) {
+		if(Limbs.compare(a, b) < 0) {
+			return new int[][] {Limbs.EMPTY, a};
+		}
+		if(b.length == 1) {
+			return divideSmall(a, b[0]);
+		}
+		if(b.length < BURNIKEL_ZIEGLER_THRESHOLD
+				|| a.length - b.length < BURNIKEL_ZIEGLER_OFFSET) {
+			return divideKnuth(a, b);
+		}
+		return divideBurnikelZiegler(a, b);
+	}
+
+	/**
+	 * Short division by a single limb.
+	 *
+	 * @param a Dividend magnitude
+	 * @param divisor Divisor, between 1 and 2^30
+	 * @return Quotient and remainder magnitudes
+	 */
+	static int[][] divideSmall(int[] a, int divisor) {
+		int[] q = new int[a.length];
+		long rem = 0;
+		for(int i = a.length - 1; i >= 0; i--) {
+			long cur = rem * Limbs.BASE + a[i];
+			q[i] = (int)(cur / divisor);
+			rem = cur - q[i] * (long)divisor;
+		}
+		int[] r = rem == 0 ? Limbs.EMPTY : new int[] {(int)rem};
+		return new int[][] {Limbs.strip(q, q.length), r};
+	}
+
+	/**
+	 * Knuth's Algorithm D. Both operands are first scaled by a single-limb
+	 * factor that makes the top limb of the divisor at least BASE / 2, so
+	 * every estimated quotient limb is off by at most two.
+	 *
+	 * @param a Dividend magnitude
+	 * @param b Divisor magnitude, at least two limbs
+	 * @return Quotient and remainder magnitudes
+	 */
+	static int[][] divideKnuth(int[] a, int[] b) {
+		int n = b.length, m = a.length - n;
+		int scale = Limbs.BASE / (b[n-1] + 1);
+
+		int[] u = new int[a.length + 1];
+		int[] scaledA = Limbs.multiplySmall(a, scale);
+		System.arraycopy(scaledA, 0, u, 0, scaledA.length);
+		int[] v = Limbs.multiplySmall(b, scale);
+
+		long vTop = v[n-1], vNext = v[n-2];
+		int[] q = new int[m + 1];
+		for(int j = m; j >= 0; j--) {
+			//Estimate the quotient limb from the top two limbs of the divisor
+			long num = u[j+n] * (long)Limbs.BASE + u[j+n-1];
+			long qhat = num / vTop, rhat = num % vTop;
+			while(qhat >= Limbs.BASE || qhat * vNext > rhat * Limbs.BASE + u[j+n-2]) {
+				qhat--;
+				rhat += vTop;
+				if(rhat >= Limbs.BASE) {
+					break;
+				}
+			}
+
+			//Multiply and subtract qhat * v from the current window of u
+			long carry = 0, borrow = 0;
+			for(int i = 0; i < n; i++) {
+				long product = qhat * v[i] + carry;
+				carry = product / Limbs.BASE;
+				long diff = u[i+j] - (product - carry * Limbs.BASE) - borrow;
+				borrow = diff < 0 ? 1 : 0;
+				u[i+j] = (int)(diff + borrow * Limbs.BASE);
+			}
+			long top = u[j+n] - carry - borrow;
+
+			//The estimate was one too large, so add the divisor back
+			if(top < 0) {
+				qhat--;
+				carry = 0;
+				for(int i = 0; i < n; i++) {
+					long sum = (long)u[i+j] + v[i] + carry;
+					carry = sum >= Limbs.BASE ? 1 : 0;
+					u[i+j] = (int)(sum - carry * Limbs.BASE);
+				}
+				top += carry;
+			}
+			u[j+n] = (int)top;
+			q[j] = (int)qhat;
+		}
+
+		//The remainder is what is left of u, scaled back down
+		int[] r = Limbs.divideSmall(Limbs.strip(u, n), scale);
+		return new int[][] {Limbs.strip(q, q.length), r};
+	}
+
+	/**
+	 * Recursive division of Burnikel and Ziegler ("Fast Recursive Division",
+	 * MPI-I-98-1-022). The divisor is padded to n = j * 2^k limbs and the
+	 * dividend is cut into blocks of n limbs, which are divided one at a time
+	 * with divide2n1n.
+	 *
+	 * @param a Dividend magnitude
+	 * @param b Divisor magnitude
+	 * @return Quotient and remainder magnitudes
+	 */
+	static int[][] divideBurnikelZiegler(int[] a, int[] b) {
+		int s = b.length;
+		int m = 1;
+		while(m * BURNIKEL_ZIEGLER_THRESHOLD <= s) {
+			m <<= 1;
+		}
+		int j = (s + m - 1) / m;
+		int n = j * m;
+
+		//Normalize the divisor to exactly n limbs with a top limb of at least
+		//BASE / 2, and scale the dividend the same way
+		int scale = Limbs.BASE / (b[s-1] + 1);
+		int shift = n - s;
+		int[] bScaled = Limbs.shiftLeft(Limbs.multiplySmall(b, scale), shift);
+		int[] aScaled = Limbs.shiftLeft(Limbs.multiplySmall(a, scale), shift);
+
+		//Leave at least one zero limb on top so the first block is below the divisor
+		int t = Math.max(2, (aScaled.length + n) / n);
+
+		int[] q = new int[t * n];
+		int[] z = Limbs.slice(aScaled, (t-2) * n, t * n);
+		for(int i = t - 2; i >= 0; i--) {
+			int[][] qr = divide2n1n(z, bScaled, n);
+			Limbs.addInto(q, qr[0], i * n);
+			if(i > 0) {
+				z = Limbs.add(Limbs.shiftLeft(qr[1], n), Limbs.slice(aScaled, (i-1) * n, i * n));
+			} else {
+				z = qr[1];
+			}
+		}
+
+		//Undo the normalization on the remainder
+		int[] r = Limbs.divideSmall(Limbs.slice(z, shift, z.length), scale);
+		return new int[][] {Limbs.strip(q, q.length), r};
+	}
+
+	/**
+	 * Divides a magnitude of at most 2n limbs by a normalized divisor of
+	 * exactly n limbs, given that the quotient fits in n limbs.
+	 */
+	private static int[][] divide2n1n(int[] a, int[] b, int n) {
+		if((n & 1) != 0 || n < BURNIKEL_ZIEGLER_THRESHOLD) {
+			return divideAndRemainder(a, b);
+		}
+		int half = n / 2;
+
+		//Divide the top three half-blocks, then the remainder and the last one
+		int[][] qr1 = divide3n2n(Limbs.slice(a, half, a.length), b, half);
+		int[] rest = Limbs.add(Limbs.shiftLeft(qr1[1], half), Limbs.slice(a, 0, half));
+		int[][] qr2 = divide3n2n(rest, b, half);
+
+		int[] q = new int[n + 1];
+		Limbs.addInto(q, qr2[0], 0);
+		Limbs.addInto(q, qr1[0], half);
+		return new int[][] {Limbs.strip(q, q.length), qr2[1]};
+	}
+
+	/**
+	 * Divides a magnitude of at most 3h limbs by a normalized divisor of
+	 * exactly 2h limbs, given that the quotient fits in h limbs.
+	 */
+	private static int[][] divide3n2n(int[] a, int[] b, int half) {
+		int[] a12 = Limbs.slice(a, half, a.length);
+		int[] a3 = Limbs.slice(a, 0, half);
+		int[] b1 = Limbs.slice(b, half, b.length);
+		int[] b2 = Limbs.slice(b, 0, half);
+
+		//Estimate the quotient from the top blocks of both operands
+		int[] q, r1;
+		if(Limbs.compare(Limbs.slice(a, 2 * half, a.length), b1) < 0) {
+			int[][] qr = divide2n1n(a12, b1, half);
+			q = qr[0];
+			r1 = qr[1];
+		} else {
+			//The quotient is BASE^half - 1, and r1 = a12 - q*b1 = a12 - b1*BASE^half + b1
+			q = new int[half];
+			Arrays.fill(q, Limbs.BASE - 1);
+			r1 = Limbs.subtract(Limbs.add(a12, b1), Limbs.shiftLeft(b1, half));
+		}
+
+		//Correct the estimate, which is at most two too large
+		int[] d = Multiplication.multiply(q, b2);
+		int[] r = Limbs.add(Limbs.shiftLeft(r1, half), a3);
+		while(Limbs.compare(r, d) < 0) {
+			r = Limbs.add(r, b);
+			q = Limbs.subtract(q, ONE);
+		}
+		return new int[][] {q, Limbs.subtract(r, d)};
+	}
+}
@@ -0,0 +1,374 @@
+package math;
+
+/**
+ * Static helpers that operate on the magnitude of a BigInteger.
+ *
+ * A magnitude is an int array of base 10^9 "limbs", stored with the
+ * Least Significant limb FIRST, exactly like the digits of the old linked list.
+ * For instance, the integer 12345678901234567890 would be stored as:
+ *    234567890, 345678901, 12
+ * A normalized magnitude has no leading (most significant) zero limbs, so
+ * the value zero is the empty array.
+ *
+ */
+final class Limbs {
+
+	/**
+	 * Value of a single limb position
+	 */
+	static final int BASE = 1000000000;
+
+	/**
+	 * Number of decimal digits held in a full limb
+	 */
+	static final int BASE_DIGITS = 9;
+
+	/**
+	 * The magnitude of zero
+	 */
+	static final int[] EMPTY = new int[0];
+
+	// prevent instantiation
+	private Limbs() { }
+
+	/**
+	 * Builds the magnitude of a nonnegative long.
+	 *
+	 * @param value Value, at least 0
+	 * @return Normalized magnitude of {@code value}
+	 */
+	static int[] valueOf(long value) {
+		if(value == 0) {
+			return EMPTY;
+		} else if(value < BASE) {
+			return new int[] {(int)value};
+		} else if(value < (long)BASE * BASE) {
+			return new int[] {(int)(value % BASE), (int)(value / BASE)};
+		}
+		return new int[] {(int)(value % BASE), (int)(value / BASE % BASE), (int)(value / BASE / BASE)};
+	}
+
+	/**
+	 * Compares two normalized magnitudes, starting at the most significant limb
+	 * and stopping at the first limb that differs.
+	 *
+	 * @param a First magnitude
+	 * @param b Second magnitude
+	 * @return Negative, zero or positive as {@code a} is less than, equal to,
+	 *         or greater than {@code b}
+	 */
+	static int compare(int[] a, int[] b) {
+		if(a.length != b.length) {
+			return a.length < b.length ? -1 : 1;
+		}
+		for(int i = a.length - 1; i >= 0; i--) {
+			if(a[i] != b[i]) {
+				return a[i] < b[i] ? -1 : 1;
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * Adds two magnitudes.
+	 *
+	 * @param a First magnitude
+	 * @param b Second magnitude
+	 * @return Normalized magnitude of {@code a + b}
+	 */
+	static int[] add(int[] a, int[] b) {
+		//Make a the longer of the two so the tail loop only walks one array
+		if(a.length < b.length) {
+			int[] tmp = a;
+			a = b;
+			b = tmp;
+		}
+
+		int[] result = new int[a.length + 1];
+		int carry = 0, i = 0;
+		for(; i < b.length; i++) {
+			int sum = a[i] + b[i] + carry;
+			carry = sum >= BASE ? 1 : 0;
+			result[i] = sum - carry * BASE;
+		}
+		for(; i < a.length; i++) {
+			int sum = a[i] + carry;
+			carry = sum >= BASE ? 1 : 0;
+			result[i] = sum - carry * BASE;
+		}
+
+		//Only keep the extra limb if the carry made it all the way through
+		if(carry != 0) {
+			result[i] = carry;
+			return result;
+		}
+		return strip(result, a.length);
+	}
+
+	/**
+	 * Subtracts the smaller magnitude from the larger one.
+	 *
+	 * @param a Magnitude to subtract from, must be at least {@code b}
+	 * @param b Magnitude to subtract
+	 * @return Normalized magnitude of {@code a - b}
+	 */
+	static int[] subtract(int[] a, int[] b) {
+		int[] result = new int[a.length];
+		int borrow = 0, i = 0;
+		for(; i < b.length; i++) {
+			int diff = a[i] - b[i] - borrow;
+			borrow = diff < 0 ? 1 : 0;
+			result[i] = diff + borrow * BASE;
+		}
+		for(; i < a.length; i++) {
+			int diff = a[i] - borrow;
+			borrow = diff < 0 ? 1 : 0;
+			result[i] = diff + borrow * BASE;
+		}
+		return strip(result, result.length);
+	}
+
+	/**
+	 * Schoolbook multiplication of two magnitudes. Each limb product fits
+	 * comfortably in a long, so the carries are folded in as we go.
+	 *
+	 * @param a First magnitude
+	 * @param b Second magnitude
+	 * @return Normalized magnitude of {@code a * b}
+	 */
+	static int[] multiply(int[] a, int[] b) {
+		if(a.length == 0 || b.length == 0) {
+			return EMPTY;
+		}
+
+		int[] result = new int[a.length + b.length];
+		for(int j = 0; j < b.length; j++) {
+			long multiplier = b[j];
+			if(multiplier == 0) {
+				continue;
+			}
+			long carry = 0;
+			for(int i = 0; i < a.length; i++) {
+				long product = a[i] * multiplier + result[i+j] + carry;
+				carry = product / BASE;
+				result[i+j] = (int)(product - carry * BASE);
+			}
+			result[j + a.length] = (int)carry;
+		}
+		return strip(result, result.length);
+	}
+
+	/**
+	 * Schoolbook squaring. Each cross product a[i]*a[j] with i != j turns up
+	 * twice in the square, so only the ones with i < j are summed, and the
+	 * sum is doubled while the squares a[i]*a[i] are added in. That is about
+	 * half the limb products and divisions of multiply(a, a).
+	 *
+	 * @param a Magnitude
+	 * @return Normalized magnitude of {@code a * a}
+	 */
+	static int[] square(int[] a) {
+		if(a.length == 0) {
+			return EMPTY;
+		}
+
+		int[] result = new int[2 * a.length];
+		for(int i = 0; i < a.length - 1; i++) {
+			long multiplier = a[i];
+			if(multiplier == 0) {
+				continue;
+			}
+			long carry = 0;
+			for(int j = i + 1; j < a.length; j++) {
+				long product = a[j] * multiplier + result[i+j] + carry;
+				carry = product / BASE;
+				result[i+j] = (int)(product - carry * BASE);
+			}
+			result[i + a.length] = (int)carry;
+		}
+
+		//Double the cross products and add the squares, in one pass
+		long carry = 0;
+		for(int k = 0; k < result.length; k++) {
+			long sum = 2L * result[k] + carry;
+			if((k & 1) == 0) {
+				sum += (long)a[k >> 1] * a[k >> 1];
+			}
+			carry = sum / BASE;
+			result[k] = (int)(sum - carry * BASE);
+		}
+		return strip(result, result.length);
+	}
+
+	/**
+	 * Multiplies a magnitude by a single nonnegative int.
+	 *
+	 * @param a Magnitude
+	 * @param multiplier Value to multiply by
+	 * @return Normalized magnitude of {@code a * multiplier}
+	 */
+	static int[] multiplySmall(int[] a, int multiplier) {
+		if(a.length == 0 || multiplier == 0) {
+			return EMPTY;
+		}
+		int[] result = new int[a.length + 2];
+		long carry = 0;
+		int i = 0;
+		for(; i < a.length; i++) {
+			long product = a[i] * (long)multiplier + carry;
+			carry = product / BASE;
+			result[i] = (int)(product - carry * BASE);
+		}
+		for(; carry != 0; i++) {
+			result[i] = (int)(carry % BASE);
+			carry /= BASE;
+		}
+		return strip(result, result.length);
+	}
+
+	/**
+	 * Divides a magnitude by a single positive int, dropping the remainder.
+	 *
+	 * @param a Magnitude
+	 * @param divisor Positive value to divide by
+	 * @return Normalized magnitude of {@code a / divisor}
+	 */
+	static int[] divideSmall(int[] a, int divisor) {
+		int[] result = new int[a.length];
+		long rem = 0;
+		for(int i = a.length - 1; i >= 0; i--) {
+			long cur = rem * BASE + a[i];
+			result[i] = (int)(cur / divisor);
+			rem = cur - result[i] * (long)divisor;
+		}
+		return strip(result, result.length);
+	}
+
+	/**
+	 * Adds a magnitude into a larger accumulator in place, starting at the
+	 * given limb offset, and carries as far as needed. The caller makes sure
+	 * the accumulator is long enough to hold the sum.
+	 *
+	 * @param dst Accumulator, modified in place
+	 * @param src Magnitude to add
+	 * @param offset Limb position of {@code dst} that lines up with {@code src[0]}
+	 */
+	static void addInto(int[] dst, int[] src, int offset) {
+		int carry = 0, i = 0;
+		for(; i < src.length; i++) {
+			int sum = dst[offset+i] + src[i] + carry;
+			carry = sum >= BASE ? 1 : 0;
+			dst[offset+i] = sum - carry * BASE;
+		}
+		for(int j = offset + i; carry != 0; j++) {
+			int sum = dst[j] + carry;
+			carry = sum >= BASE ? 1 : 0;
+			dst[j] = sum - carry * BASE;
+		}
+	}
+
+	/**
+	 * Multiplies a magnitude by BASE^shift, that is, moves it up by
+	 * {@code shift} limb positions.
+	 *
+	 * @param a Magnitude
+	 * @param shift Number of zero limbs to put below it
+	 * @return Normalized magnitude of {@code a * BASE^shift}
+	 */
+	static int[] shiftLeft(int[] a, int shift) {
+		if(a.length == 0 || shift == 0) {
+			return a;
+		}
+		int[] result = new int[a.length + shift];
+		System.arraycopy(a, 0, result, shift, a.length);
+		return result;
+	}
+
+	/**
+	 * Copies the limbs {@code from} (inclusive) to {@code to} (exclusive) of
+	 * a magnitude, clamped to its length, and normalizes the result.
+	 *
+	 * @param a Magnitude
+	 * @param from First limb to copy
+	 * @param to Limb to stop before
+	 * @return Normalized magnitude of the selected limbs
+	 */
+	static int[] slice(int[] a, int from, int to) {
+		to = Math.min(to, a.length);
+		if(from >= to) {
+			return EMPTY;
+		}
+		int[] result = new int[to - from];
+		System.arraycopy(a, from, result, 0, to - from);
+		return strip(result, result.length);
+	}
+
+	/**
+	 * Drops the most significant zero limbs from the first {@code len} limbs
+	 * of a magnitude. Returns the same array when nothing has to be dropped.
+	 *
+	 * @param a Magnitude, possibly with leading zero limbs
+	 * @param len Number of limbs of {@code a} that are in use
+	 * @return Normalized magnitude
+	 */
+	static int[] strip(int[] a, int len) {
+		while(len > 0 && a[len-1] == 0) {
+			len--;
+		}
+		if(len == a.length) {
+			return a;
+		}
+		if(len == 0) {
+			return EMPTY;
+		}
+		int[] result = new int[len];
+		System.arraycopy(a, 0, result, 0, len);
+		return result;
+	}
+
+	/**
+	 * Counts the decimal digits of a normalized magnitude.
+	 *
+	 * @param a Magnitude
+	 * @return Number of decimal digits, 0 for zero
+	 */
+	static int digitCount(int[] a) {
+		if(a.length == 0) {
+			return 0;
+		}
+		return (a.length - 1) * BASE_DIGITS + digitCount(a[a.length-1]);
+	}
+
+	/**
+	 * Counts the decimal digits of a single nonzero limb.
+	 *
+	 * @param limb Limb value, between 1 and BASE - 1
+	 * @return Number of decimal digits in the limb
+	 */
+	static int digitCount(int limb) {
+		int count = 1;
+		while(limb >= 10) {
+			limb /= 10;
+			count++;
+		}
+		return count;
+	}
+
+	/**
+	 * Counts the decimal digits of a nonnegative long.
+	 *
+	 * @param value Value, at least 0
+	 * @return Number of decimal digits, 0 for zero
+	 */
+	static int digitCount(long value) {
+		if(value < BASE) {
+			return value == 0 ? 0 : digitCount((int)value);
+		}
+		int count = 0;
+		while(value >= BASE) {
+			value /= BASE;
+			count += BASE_DIGITS;
+		}
+		return count + digitCount((int)value);
+	}
+}
@@ -0,0 +1,550 @@
+package math;
+
+import java.util.Arrays;
+
+/**
+ * Modular exponentiation, modular inverse and GCD on normalized magnitudes
+ * (see Limbs).
+ *
+ * modPow uses left-to-right sliding-window exponentiation. When the modulus
+ * is coprime to the limb base (neither even nor a multiple of 5) every step
+ * is a Montgomery multiplication with R = BASE^n, so no step needs a
+ * division. Other moduli fall back to reducing each product with Division.
+ * The products themselves always come from the Multiplication engine.
+ *
+ * gcd and modInverse use the binary (Stein) algorithm, which only needs
+ * halving, subtraction and comparison. These run in place on fixed-length
+ * scratch arrays, so the loops do not allocate.
+ *
+ */
+final class ModularArithmetic {
+
+	/**
+	 * The magnitude of one
+	 */
+	private static final int[] ONE = {1};
+
+	// prevent instantiation
+	private ModularArithmetic() { }
+
+	/**
+	 * Computes base^exponent mod modulus.
+	 *
+	 * @param base Magnitude already reduced below the modulus
+	 * @param exponent Nonzero exponent magnitude
+	 * @param modulus Modulus magnitude, greater than one
+	 * @return Normalized magnitude of the result
+	 */
+	static int[] modPow(int[] base, int[] exponent, int[] modulus) {
+		Reducer reducer = isCoprimeToBase(modulus)
+				? new MontgomeryReducer(modulus) : new ClassicReducer(modulus);
+
+		int[] bits = toBinary(exponent);
+		int bitLength = bitLength(bits);
+		int window = windowSize(bitLength);
+
+		//Precompute the odd powers base^1, base^3, ..., base^(2^window - 1)
+		int[][] table = new int[1 << (window - 1)][];
+		table[0] = reducer.convertIn(base);
+		if(table.length > 1) {
+			int[] baseSquared = reducer.square(table[0]);
+			for(int i = 1; i < table.length; i++) {
+				table[i] = reducer.multiply(table[i-1], baseSquared);
+			}
+		}
+
+		//Scan the exponent from the top, one window of bits at a time
+		int[] result = null;
+		int i = bitLength - 1;
+		while(i >= 0) {
+			if(!testBit(bits, i)) {
+				result = reducer.square(result);
+				i--;
+				continue;
+			}
+
+			//The window ends at the lowest set bit within reach
+			int low = Math.max(i - window + 1, 0);
+			while(!testBit(bits, low)) {
+				low++;
+			}
+			int value = 0;
+			for(int j = i; j >= low; j--) {
+				value = (value << 1) | (testBit(bits, j) ? 1 : 0);
+				if(result != null) {
+					result = reducer.square(result);
+				}
+			}
+			result = result == null ? table[value >> 1] : reducer.multiply(result, table[value >> 1]);
+			i = low - 1;
+		}
+
+		return reducer.convertOut(result);
+	}
+
+	/**
+	 * Computes the greatest common divisor of two magnitudes.
+	 *
+	 * @param a First magnitude
+	 * @param b Second magnitude
+	 * @return Normalized magnitude of gcd(a, b), which is zero only if both are
+	 */
+	static int[] gcd(int[] a, int[] b) {
+		if(a.length == 0) {
+			return b;
+		}
+		if(b.length == 0) {
+			return a;
+		}
+
+		//One division brings wildly different sizes together much faster
+		//than repeated subtraction would
+		if(a.length < b.length) {
+			int[] tmp = a;
+			a = b;
+			b = tmp;
+		}
+		if(a.length > b.length + 1) {
+			a = Division.divideAndRemainder(a, b)[1];
+			if(a.length == 0) {
+				return b;
+			}
+		}
+
+		int len = Math.max(a.length, b.length);
+		int[] u = copyOf(a, len), v = copyOf(b, len);
+
+		//Factor out the powers of two both share
+		int shared = 0;
+		while(isEven(u) && isEven(v)) {
+			halve(u);
+			halve(v);
+			shared++;
+		}
+		while(isEven(u)) {
+			halve(u);
+		}
+
+		//u stays odd; subtract the smaller from the larger until v runs out
+		while(!isZero(v)) {
+			while(isEven(v)) {
+				halve(v);
+			}
+			if(compareFixed(u, v) > 0) {
+				int[] tmp = u;
+				u = v;
+				v = tmp;
+			}
+			subtractInPlace(v, u);
+		}
+
+		int[] result = Limbs.strip(u, len);
+		for(; shared > 0; shared -= 29) {
+			result = Limbs.multiplySmall(result, 1 << Math.min(shared, 29));
+		}
+		return result;
+	}
+
+	/**
+	 * Computes the inverse of a magnitude modulo another.
+	 *
+	 * @param a Magnitude already reduced below the modulus, nonzero
+	 * @param modulus Modulus magnitude, greater than one
+	 * @return Normalized magnitude x with a*x = 1 (mod modulus)
+	 * @throws ArithmeticException If a and the modulus share a factor
+	 */
+	static int[] modInverse(int[] a, int[] modulus) {
+		if(!isOdd(modulus)) {
+			//For an even modulus m, the value a must be odd, and
+			//  a^-1 mod m = (1 + m * (a - (m^-1 mod a))) / a
+			if(!isOdd(a)) {
+				throw new ArithmeticException("BigInteger not invertible.");
+			}
+			if(Limbs.compare(a, ONE) == 0) {
+				return ONE;
+			}
+			int[] y = modInverseOdd(Division.divideAndRemainder(modulus, a)[1], a);
+			int[] numerator = Limbs.add(ONE, Multiplication.multiply(modulus, Limbs.subtract(a, y)));
+			return Division.divideAndRemainder(numerator, a)[0];
+		}
+		return modInverseOdd(a, modulus);
+	}
+
+	/**
+	 * Binary extended GCD for an odd modulus. Keeps u = x1*a and v = x2*a
+	 * (mod m) while reducing u and v toward their gcd.
+	 */
+	private static int[] modInverseOdd(int[] a, int[] modulus) {
+		if(a.length == 0) {
+			throw new ArithmeticException("BigInteger not invertible.");
+		}
+		int len = modulus.length + 1;
+		int[] m = copyOf(modulus, len);
+		int[] u = copyOf(a, len), v = copyOf(modulus, len);
+		int[] x1 = copyOf(ONE, len), x2 = new int[len];
+
+		while(!isOne(u) && !isOne(v)) {
+			if(isZero(u) || isZero(v)) {
+				throw new ArithmeticException("BigInteger not invertible.");
+			}
+			while(isEven(u)) {
+				halve(u);
+				halveModulo(x1, m);
+			}
+			while(isEven(v)) {
+				halve(v);
+				halveModulo(x2, m);
+			}
+			if(compareFixed(u, v) >= 0) {
+				subtractInPlace(u, v);
+				subtractModulo(x1, x2, m);
+			} else {
+				subtractInPlace(v, u);
+				subtractModulo(x2, x1, m);
+			}
+		}
+		return Limbs.strip(isOne(u) ? x1 : x2, len);
+	}
+
+	/**
+	 * A modulus the Montgomery reducer can work with shares no factor with
+	 * BASE = 2^9 * 5^9
+	 */
+	private static boolean isCoprimeToBase(int[] modulus) {
+		return (modulus[0] & 1) != 0 && modulus[0] % 5 != 0;
+	}
+
+	/**
+	 * Window width for an exponent of the given bit length, chosen so the
+	 * table of odd powers stays small compared to the number of squarings
+	 */
+	private static int windowSize(int bitLength) {
+		if(bitLength <= 24) {
+			return 1;
+		} else if(bitLength <= 80) {
+			return 3;
+		} else if(bitLength <= 240) {
+			return 4;
+		} else if(bitLength <= 672) {
+			return 5;
+		}
+		return 6;
+	}
+
+	/**
+	 * Converts a magnitude to 30-bit binary words, least significant first,
+	 * by repeated short division by 2^30.
+	 */
+	private static int[] toBinary(int[] a) {
+		int[] words = new int[a.length + 1];
+		int count = 0;
+		while(a.length != 0) {
+			int[][] qr = Division.divideSmall(a, 1 << 30);
+			words[count++] = qr[1].length == 0 ? 0 : qr[1][0];
+			a = qr[0];
+		}
+		return Limbs.strip(words, count);
+	}
+
+	private static int bitLength(int[] words) {
+		return (words.length - 1) * 30 + (32 - Integer.numberOfLeadingZeros(words[words.length-1]));
+	}
+
+	private static boolean testBit(int[] words, int bit) {
+		return (words[bit / 30] & (1 << (bit % 30))) != 0;
+	}
+
+	/*
+	 * In-place helpers on fixed-length, possibly unnormalized, magnitudes.
+	 */
+
+	private static int[] copyOf(int[] a, int len) {
+		int[] result = new int[len];
+		System.arraycopy(a, 0, result, 0, a.length);
+		return result;
+	}
+
+	private static boolean isOdd(int[] a) {
+		return a.length != 0 && (a[0] & 1) != 0;
+	}
+
+	private static boolean isEven(int[] a) {
+		return (a[0] & 1) == 0;
+	}
+
+	private static boolean isZero(int[] a) {
+		for(int i = 0; i < a.length; i++) {
+			if(a[i] != 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean isOne(int[] a) {
+		if(a[0] != 1) {
+			return false;
+		}
+		for(int i = 1; i < a.length; i++) {
+			if(a[i] != 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static int compareFixed(int[] a, int[] b) {
+		for(int i = a.length - 1; i >= 0; i--) {
+			if(a[i] != b[i]) {
+				return a[i] < b[i] ? -1 : 1;
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * a = a / 2, for even a
+	 */
+	private static void halve(int[] a) {
+		int rem = 0;
+		for(int i = a.length - 1; i >= 0; i--) {
+			long cur = rem * (long)Limbs.BASE + a[i];
+			a[i] = (int)(cur >> 1);
+			rem = (int)(cur & 1);
+		}
+	}
+
+	/**
+	 * a = a - b, for a at least b
+	 */
+	private static void subtractInPlace(int[] a, int[] b) {
+		int borrow = 0;
+		for(int i = 0; i < a.length; i++) {
+			int diff = a[i] - b[i] - borrow;
+			borrow = diff < 0 ? 1 : 0;
+			a[i] = diff + borrow * Limbs.BASE;
+		}
+	}
+
+	/**
+	 * a = a + b, with room for the carry in a
+	 */
+	private static void addInPlace(int[] a, int[] b) {
+		int carry = 0;
+		for(int i = 0; i < a.length; i++) {
+			int sum = a[i] + b[i] + carry;
+			carry = sum >= Limbs.BASE ? 1 : 0;
+			a[i] = sum - carry * Limbs.BASE;
+		}
+	}
+
+	/**
+	 * x = x / 2 (mod m), for odd m and x below m
+	 */
+	private static void halveModulo(int[] x, int[] m) {
+		if(!isEven(x)) {
+			addInPlace(x, m);
+		}
+		halve(x);
+	}
+
+	/**
+	 * x = x - y (mod m), for x and y below m
+	 */
+	private static void subtractModulo(int[] x, int[] y, int[] m) {
+		if(compareFixed(x, y) < 0) {
+			addInPlace(x, m);
+		}
+		subtractInPlace(x, y);
+	}
+
+	/**
+	 * Multiplication and squaring modulo a fixed modulus, in whatever
+	 * internal form the reducer prefers.
+	 */
+	private abstract static class Reducer {
+		final int[] modulus;
+
+		Reducer(int[] modulus) {
+			this.modulus = modulus;
+		}
+
+		abstract int[] convertIn(int[] a);
+		abstract int[] convertOut(int[] a);
+		abstract int[] reduce(int[] product);
+
+		int[] multiply(int[] a, int[] b) {
+			return reduce(Multiplication.multiply(a, b));
+		}
+
+		int[] square(int[] a) {
+			return reduce(Multiplication.square(a));
+		}
+	}
+
+	/**
+	 * Reduces every product with a full division.
+	 */
+	private static final class ClassicReducer extends Reducer {
+		ClassicReducer(int[] modulus) {
+			super(modulus);
+		}
+
+		int[] convertIn(int[] a) {
+			return a;
+		}
+
+		int[] convertOut(int[] a) {
+			return a;
+		}
+
+		int[] reduce(int[] product) {
+			return Division.divideAndRemainder(product, modulus)[1];
+		}
+	}
+
+	/**
+	 * Montgomery reduction with R = BASE^n for an n-limb modulus. Values are
+	 * kept as aR mod m, and REDC(T) = T / R mod m only needs one limb-by-
+	 * modulus multiply-add per limb of the modulus.
+	 */
+	private static final class MontgomeryReducer extends Reducer {
+		final int n;
+
+		/**
+		 * -m^-1 mod BASE
+		 */
+		final long mPrime;
+
+		/**
+		 * Reused accumulator for products and REDC
+		 */
+		final int[] scratch;
+
+		/**
+		 * Modulus length in limbs below which products are formed directly in
+		 * the scratch array instead of going through the Multiplication engine
+		 */
+		static final int IN_PLACE_THRESHOLD = 2 * Multiplication.KARATSUBA_THRESHOLD;
+
+		MontgomeryReducer(int[] modulus) {
+			super(modulus);
+			n = modulus.length;
+			mPrime = Limbs.BASE - inverseModBase(modulus[0]);
+			scratch = new int[2 * n + 2];
+		}
+
+		int[] convertIn(int[] a) {
+			return Division.divideAndRemainder(Limbs.shiftLeft(a, n), modulus)[1];
+		}
+
+		int[] convertOut(int[] a) {
+			return reduce(a);
+		}
+
+		int[] multiply(int[] a, int[] b) {
+			if(n >= IN_PLACE_THRESHOLD) {
+				return super.multiply(a, b);
+			}
+			int[] t = scratch;
+			Arrays.fill(t, 0);
+			for(int j = 0; j < b.length; j++) {
+				long multiplier = b[j];
+				long carry = 0;
+				for(int i = 0; i < a.length; i++) {
+					long product = a[i] * multiplier + t[i+j] + carry;
+					carry = product / Limbs.BASE;
+					t[i+j] = (int)(product - carry * Limbs.BASE);
+				}
+				t[j + a.length] = (int)carry;
+			}
+			return redc();
+		}
+
+		int[] square(int[] a) {
+			if(n >= IN_PLACE_THRESHOLD) {
+				return super.square(a);
+			}
+			int[] t = scratch;
+			Arrays.fill(t, 0);
+
+			//Every cross product a[i]*a[j] with i < j appears twice, so add
+			//each once, double the total, then add the squares a[i]^2
+			for(int i = 0; i < a.length; i++) {
+				long multiplier = a[i];
+				long carry = 0;
+				for(int j = i + 1; j < a.length; j++) {
+					long product = a[j] * multiplier + t[i+j] + carry;
+					carry = product / Limbs.BASE;
+					t[i+j] = (int)(product - carry * Limbs.BASE);
+				}
+				t[i + a.length] = (int)carry;
+			}
+			long carry = 0;
+			for(int k = 0; k < 2 * a.length; k++) {
+				long value = 2L * t[k] + carry;
+				if((k & 1) == 0) {
+					value += a[k >> 1] * (long)a[k >> 1];
+				}
+				carry = value / Limbs.BASE;
+				t[k] = (int)(value - carry * Limbs.BASE);
+			}
+			return redc();
+		}
+
+		int[] reduce(int[] product) {
+			int[] t = scratch;
+			System.arraycopy(product, 0, t, 0, product.length);
+			Arrays.fill(t, product.length, t.length, 0);
+			return redc();
+		}
+
+		/**
+		 * REDC on the value held in the scratch array: adds the multiple of
+		 * the modulus that clears the low n limbs, then drops them.
+		 */
+		private int[] redc() {
+			int[] t = scratch;
+
+			//Clear one low limb at a time by adding a multiple of the modulus
+			for(int i = 0; i < n; i++) {
+				long u = t[i] * mPrime % Limbs.BASE;
+				long carry = 0;
+				for(int j = 0; j < n; j++) {
+					long sum = u * modulus[j] + t[i+j] + carry;
+					carry = sum / Limbs.BASE;
+					t[i+j] = (int)(sum - carry * Limbs.BASE);
+				}
+				for(int k = i + n; carry != 0; k++) {
+					long sum = t[k] + carry;
+					carry = sum / Limbs.BASE;
+					t[k] = (int)(sum - carry * Limbs.BASE);
+				}
+			}
+
+			//The low n limbs are now zero, and the rest is below 2m
+			int[] result = Limbs.slice(t, n, 2 * n + 1);
+			if(Limbs.compare(result, modulus) >= 0) {
+				result = Limbs.subtract(result, modulus);
+			}
+			return result;
+		}
+
+		/**
+		 * Inverse of an odd limb not divisible by 5, modulo BASE, by the
+		 * extended Euclidean algorithm
+		 */
+		private static long inverseModBase(long a) {
+			long oldR = a, r = Limbs.BASE, oldS = 1, s = 0;
+			while(r != 0) {
+				long q = oldR / r, tmp = r;
+				r = oldR - q * r;
+				oldR = tmp;
+				tmp = s;
+				s = oldS - q * s;
+				oldS = tmp;
+			}
+			return ((oldS % Limbs.BASE) + Limbs.BASE) % Limbs.BASE;
+		}
+	}
+}
@@ -0,0 +1,418 @@
+package math;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * The multiplication engine behind BigInteger.multiply. It works directly on
+ * normalized magnitudes (see Limbs) and picks an algorithm by operand size:
+ *  - schoolbook multiplication for small operands,
+ *  - Karatsuba (3 half-size products instead of 4) above KARATSUBA_THRESHOLD,
+ *  - Toom-Cook 3-way (5 third-size products instead of 9) above TOOM_COOK_THRESHOLD,
+ *  - a number-theoretic transform (see NumberTheoreticTransform) above NTT_THRESHOLD.
+ * Very large products can also be split across a fork/join pool, see multiplyParallel.
+ *
+ */
+final class Multiplication {
+
+	/**
+	 * Operand length in limbs (about 360 digits) below which schoolbook
+	 * multiplication beats Karatsuba
+	 */
+	static final int KARATSUBA_THRESHOLD = 40;
+
+	/**
+	 * Operand length in limbs (about 1100 digits) below which Karatsuba
+	 * beats Toom-Cook 3-way
+	 */
+	static final int TOOM_COOK_THRESHOLD = 120;
+
+	/**
+	 * Operand length in limbs (about 18000 digits) below which Toom-Cook
+	 * beats the number-theoretic transform
+	 */
+	static final int NTT_THRESHOLD = 2000;
+
+	/**
+	 * Operand length in limbs (about 36000 digits) below which a parallel
+	 * multiplication stops splitting into tasks and multiplies sequentially
+	 */
+	static final int PARALLEL_THRESHOLD = 4000;
+
+	/**
+	 * Operand length in limbs (about 180000 digits) from which
+	 * BigInteger.multiply runs in parallel on the common pool by itself
+	 */
+	static final int AUTO_PARALLEL_THRESHOLD = 20000;
+
+	// prevent instantiation
+	private Multiplication() { }
+
+	/**
+	 * Multiplies two magnitudes with whichever algorithm suits their size.
+	 *
+	 * @param a First magnitude
+	 * @param b Second magnitude
+	 * @return Normalized magnitude of {@code a * b}
+	 */
+	static int[] multiply(int[] a, int[] b) {
+		//Keep a as the shorter operand
+		if(a.length > b.length) {
+			int[] tmp = a;
+			a = b;
+			b = tmp;
+		}
+
+		if(a.length < KARATSUBA_THRESHOLD) {
+			return Limbs.multiply(a, b);
+		}
+
+		//The transform handles unbalanced operands by itself, as long as
+		//the whole product fits in one transform
+		if(a.length >= NTT_THRESHOLD && NumberTheoreticTransform.fits(a.length + b.length)) {
+			return NumberTheoreticTransform.multiply(a, b);
+		}
+
+		//Very unbalanced operands waste most of a Karatsuba or Toom split on
+		//empty halves, so cut the longer one into pieces the size of the shorter
+		if(2 * a.length <= b.length) {
+			return multiplyUnbalanced(a, b);
+		}
+
+		if(a.length < TOOM_COOK_THRESHOLD) {
+			return multiplyKaratsuba(a, b);
+		}
+		return multiplyToomCook3(a, b);
+	}
+
+	/**
+	 * Squares a magnitude, with the same size tiers as multiply, each of
+	 * which is cheaper for a square: schoolbook squaring needs only half the
+	 * limb products, Karatsuba and Toom-Cook split the operand once instead
+	 * of twice and square their pieces, and the number-theoretic transform
+	 * saves one forward transform per prime.
+	 *
+	 * @param a Magnitude
+	 * @return Normalized magnitude of {@code a * a}
+	 */
+	static int[] square(int[] a) {
+		if(a.length < KARATSUBA_THRESHOLD) {
+			return Limbs.square(a);
+		}
+		if(a.length >= NTT_THRESHOLD && NumberTheoreticTransform.fits(2 * a.length)) {
+			return NumberTheoreticTransform.square(a);
+		}
+		if(a.length < TOOM_COOK_THRESHOLD) {
+			return squareKaratsuba(a);
+		}
+		return squareToomCook3(a);
+	}
+
+	/**
+	 * Multiplies a short magnitude by a much longer one, one chunk of the
+	 * longer operand at a time.
+	 *
+	 * @param a Shorter magnitude
+	 * @param b Longer magnitude
+	 * @return Normalized magnitude of {@code a * b}
+	 */
+	private static int[] multiplyUnbalanced(int[] a, int[] b) {
+		int[] result = new int[a.length + b.length + 1];
+		for(int from = 0; from < b.length; from += a.length) {
+			int[] chunk = Limbs.slice(b, from, from + a.length);
+			Limbs.addInto(result, multiply(a, chunk), from);
+		}
+		return Limbs.strip(result, result.length);
+	}
+
+	/**
+	 * Karatsuba multiplication. With a = a1*B^h + a0 and b = b1*B^h + b0,
+	 *    a*b = z2*B^2h + z1*B^h + z0
+	 * where z0 = a0*b0, z2 = a1*b1 and z1 = (a0+a1)*(b0+b1) - z0 - z2.
+	 *
+	 * @param a First magnitude
+	 * @param b Second magnitude
+	 * @return Normalized magnitude of {@code a * b}
+	 */
+	static int[] multiplyKaratsuba(int[] a, int[] b) {
+		int half = (Math.max(a.length, b.length) + 1) / 2;
+
+		int[] a0 = Limbs.slice(a, 0, half), a1 = Limbs.slice(a, half, a.length);
+		int[] b0 = Limbs.slice(b, 0, half), b1 = Limbs.slice(b, half, b.length);
+
+		int[] z0 = multiply(a0, b0);
+		int[] z2 = multiply(a1, b1);
+		int[] z1 = multiply(Limbs.add(a0, a1), Limbs.add(b0, b1));
+		z1 = Limbs.subtract(Limbs.subtract(z1, z0), z2);
+
+		//Add the three partial products into place
+		int[] result = new int[a.length + b.length + 1];
+		Limbs.addInto(result, z0, 0);
+		Limbs.addInto(result, z1, half);
+		Limbs.addInto(result, z2, 2 * half);
+		return Limbs.strip(result, result.length);
+	}
+
+	/**
+	 * Karatsuba squaring. With a = a1*B^h + a0,
+	 *    a*a = z2*B^2h + z1*B^h + z0
+	 * where z0 = a0^2, z2 = a1^2 and z1 = (a0+a1)^2 - z0 - z2, so all three
+	 * half-size products are squares again.
+	 *
+	 * @param a Magnitude
+	 * @return Normalized magnitude of {@code a * a}
+	 */
+	static int[] squareKaratsuba(int[] a) {
+		int half = (a.length + 1) / 2;
+
+		int[] a0 = Limbs.slice(a, 0, half), a1 = Limbs.slice(a, half, a.length);
+
+		int[] z0 = square(a0);
+		int[] z2 = square(a1);
+		int[] z1 = square(Limbs.add(a0, a1));
+		z1 = Limbs.subtract(Limbs.subtract(z1, z0), z2);
+
+		int[] result = new int[2 * a.length + 1];
+		Limbs.addInto(result, z0, 0);
+		Limbs.addInto(result, z1, half);
+		Limbs.addInto(result, z2, 2 * half);
+		return Limbs.strip(result, result.length);
+	}
+
+	/**
+	 * Toom-Cook 3-way squaring: multiplyToomCook3 with both operands the
+	 * same, so the five point products are squares.
+	 *
+	 * @param a Magnitude
+	 * @return Normalized magnitude of {@code a * a}
+	 */
+	static int[] squareToomCook3(int[] a) {
+		ToomCook3 split = new ToomCook3(a, a);
+		int[][] products = new int[ToomCook3.POINTS][];
+		for(int i = 0; i < ToomCook3.POINTS; i++) {
+			products[i] = square(split.left[i]);
+		}
+		return split.interpolate(products);
+	}
+
+	/**
+	 * Toom-Cook 3-way multiplication. Each operand is split into three
+	 * pieces, read as a polynomial in x = B^k, evaluated at the points
+	 * 0, 1, -1, 2 and infinity, multiplied pointwise, and interpolated back
+	 * using Bodrato's sequence of exact divisions by 2 and 3.
+	 *
+	 * @param a First magnitude
+	 * @param b Second magnitude
+	 * @return Normalized magnitude of {@code a * b}
+	 */
+	static int[] multiplyToomCook3(int[] a, int[] b) {
+		ToomCook3 split = new ToomCook3(a, b);
+		int[][] products = new int[ToomCook3.POINTS][];
+		for(int i = 0; i < ToomCook3.POINTS; i++) {
+			products[i] = multiply(split.left[i], split.right[i]);
+		}
+		return split.interpolate(products);
+	}
+
+	/**
+	 * Multiplies two magnitudes using the threads of a fork/join pool.
+	 * Products that fit in one number-theoretic transform run its primes and
+	 * butterfly blocks as parallel tasks, which adds no extra work. Anything
+	 * longer is split Toom-Cook 3-way (or into chunks, for unbalanced
+	 * operands), and the sub-products are computed as separate tasks.
+	 * Operands below PARALLEL_THRESHOLD use the sequential engine.
+	 * The result is exactly the same as multiply(a, b).
+	 *
+	 * @param a First magnitude
+	 * @param b Second magnitude
+	 * @param pool Pool to run the sub-products on
+	 * @return Normalized magnitude of {@code a * b}
+	 */
+	static int[] multiplyParallel(int[] a, int[] b, ForkJoinPool pool) {
+		return pool.invoke(new MultiplyTask(a, b));
+	}
+
+	/**
+	 * Multiplies two magnitudes the same way as multiplyParallel, for a caller
+	 * that is already running as a task in a fork/join pool. The sub-products
+	 * go to that same pool.
+	 *
+	 * @param a First magnitude
+	 * @param b Second magnitude
+	 * @return Normalized magnitude of {@code a * b}
+	 */
+	static int[] multiplyInTask(int[] a, int[] b) {
+		return new MultiplyTask(a, b).invoke();
+	}
+
+	/**
+	 * A product computed as a fork/join task.
+	 */
+	private static final class MultiplyTask extends RecursiveTask<int[]> {
+		private static final long serialVersionUID = 1L;
+
+		final int[] a, b;
+
+		MultiplyTask(int[] a, int[] b) {
+			this.a = a;
+			this.b = b;
+		}
+
+		protected int[] compute() {
+			int[] shorter = a.length <= b.length ? a : b;
+			int[] longer = shorter == a ? b : a;
+			if(shorter.length < PARALLEL_THRESHOLD) {
+				return multiply(a, b);
+			}
+			if(NumberTheoreticTransform.fits(a.length + b.length)) {
+				return NumberTheoreticTransform.multiplyParallel(a, b);
+			}
+
+			//Unbalanced operands: one task per chunk of the longer operand
+			if(2 * shorter.length <= longer.length) {
+				List<MultiplyTask> chunks = new ArrayList<>();
+				for(int from = 0; from < longer.length; from += shorter.length) {
+					chunks.add(new MultiplyTask(shorter, Limbs.slice(longer, from, from + shorter.length)));
+				}
+				invokeAll(chunks);
+				int[] result = new int[a.length + b.length + 1];
+				for(int i = 0; i < chunks.size(); i++) {
+					Limbs.addInto(result, chunks.get(i).join(), i * shorter.length);
+				}
+				return Limbs.strip(result, result.length);
+			}
+
+			//Otherwise the five Toom-Cook point products run side by side
+			ToomCook3 split = new ToomCook3(a, b);
+			List<MultiplyTask> points = new ArrayList<>();
+			for(int i = 0; i < ToomCook3.POINTS; i++) {
+				points.add(new MultiplyTask(split.left[i], split.right[i]));
+			}
+			invokeAll(points);
+			int[][] products = new int[ToomCook3.POINTS][];
+			for(int i = 0; i < ToomCook3.POINTS; i++) {
+				products[i] = points.get(i).join();
+			}
+			return split.interpolate(products);
+		}
+	}
+
+	/**
+	 * The evaluation and interpolation steps of Toom-Cook 3-way, kept apart
+	 * from the five point products so those can be computed either in
+	 * sequence or as parallel tasks.
+	 */
+	private static final class ToomCook3 {
+		/**
+		 * Number of evaluation points: 0, 1, -1, 2 and infinity, in that order
+		 */
+		static final int POINTS = 5;
+
+		final int k, resultLength;
+
+		/**
+		 * Magnitudes of both operand polynomials at each point. At -1 these
+		 * are the absolute values, and vm1Negative holds the sign of the product.
+		 */
+		final int[][] left = new int[POINTS][], right = new int[POINTS][];
+		final boolean vm1Negative;
+
+		ToomCook3(int[] a, int[] b) {
+			k = (Math.max(a.length, b.length) + 2) / 3;
+			resultLength = a.length + b.length + 1;
+
+			int[] a0 = Limbs.slice(a, 0, k), a1 = Limbs.slice(a, k, 2*k), a2 = Limbs.slice(a, 2*k, a.length);
+			int[] b0 = Limbs.slice(b, 0, k), b1 = Limbs.slice(b, k, 2*k), b2 = Limbs.slice(b, 2*k, b.length);
+
+			//Evaluate at 0 and infinity
+			left[0] = a0;
+			right[0] = b0;
+			left[4] = a2;
+			right[4] = b2;
+
+			//Evaluate at -1 and 1, sharing a0 + a2
+			int[] da = Limbs.add(a0, a2), db = Limbs.add(b0, b2);
+			Signed am1 = Signed.of(da).subtract(Signed.of(a1));
+			Signed bm1 = Signed.of(db).subtract(Signed.of(b1));
+			left[2] = am1.mag;
+			right[2] = bm1.mag;
+			vm1Negative = am1.negative != bm1.negative;
+			da = Limbs.add(da, a1);
+			db = Limbs.add(db, b1);
+			left[1] = da;
+			right[1] = db;
+
+			//Evaluate at 2: a0 + 2*a1 + 4*a2 = 2*(a0 + a1 + a2 + a2) - a0
+			left[3] = Limbs.subtract(Limbs.multiplySmall(Limbs.add(da, a2), 2), a0);
+			right[3] = Limbs.subtract(Limbs.multiplySmall(Limbs.add(db, b2), 2), b0);
+		}
+
+		/**
+		 * Recovers the product from the five point products.
+		 *
+		 * @param products Products left[i] * right[i], for every point
+		 * @return Normalized magnitude of the product
+		 */
+		int[] interpolate(int[][] products) {
+			int[] v0 = products[0], v1 = products[1], v2 = products[3], vInf = products[4];
+			Signed vm1 = new Signed(vm1Negative, products[2]);
+
+			Signed t2 = Signed.of(v2).subtract(vm1).divideExact(3);
+			Signed tm1 = Signed.of(v1).subtract(vm1).divideExact(2);
+			Signed t1 = Signed.of(v1).subtract(Signed.of(v0));
+			t2 = t2.subtract(t1).divideExact(2);
+			t1 = t1.subtract(tm1).subtract(Signed.of(vInf));
+			t2 = t2.subtract(Signed.of(Limbs.multiplySmall(vInf, 2)));
+			tm1 = tm1.subtract(t2);
+
+			//All three middle coefficients are coefficients of the product
+			//polynomial, so they are never negative at this point
+			int[] result = new int[resultLength];
+			Limbs.addInto(result, v0, 0);
+			Limbs.addInto(result, tm1.mag, k);
+			Limbs.addInto(result, t1.mag, 2*k);
+			Limbs.addInto(result, t2.mag, 3*k);
+			Limbs.addInto(result, vInf, 4*k);
+			return Limbs.strip(result, result.length);
+		}
+	}
+
+	/**
+	 * A signed magnitude, for the intermediate values of Toom-Cook
+	 * interpolation that may dip below zero.
+	 */
+	private static final class Signed {
+		final boolean negative;
+		final int[] mag;
+
+		Signed(boolean negative, int[] mag) {
+			this.negative = negative && mag.length != 0;
+			this.mag = mag;
+		}
+
+		static Signed of(int[] mag) {
+			return new Signed(false, mag);
+		}
+
+		Signed add(Signed other) {
+			if(negative == other.negative) {
+				return new Signed(negative, Limbs.add(mag, other.mag));
+			}
+			int cmp = Limbs.compare(mag, other.mag);
+			if(cmp >= 0) {
+				return new Signed(negative, Limbs.subtract(mag, other.mag));
+			}
+			return new Signed(other.negative, Limbs.subtract(other.mag, mag));
+		}
+
+		Signed subtract(Signed other) {
+			return add(new Signed(!other.negative, other.mag));
+		}
+
+		Signed divideExact(int divisor) {
+			return new Signed(negative, Limbs.divideSmall(mag, divisor));
+		}
+	}
+}
@@ -0,0 +1,352 @@
+package math;
+
+import java.util.Arrays;
+
+/**
+ * This class encapsulates a BigInteger that can be changed in place, for loops
+ * that would otherwise create a new BigInteger on every step, such as long
+ * running sums. It keeps the same base 10^9 limbs as BigInteger (see Limbs),
+ * in a buffer that grows as needed and is reused between operations.
+ *
+ * When the loop is done, freeze hands the value over as an ordinary
+ * BigInteger.
+ *
+ */
+public class MutableBigInteger {
+
+	/**
+	 * True if this is a negative integer
+	 */
+	private boolean negative;
+
+	/**
+	 * Limb buffer, Least Significant limb FIRST. Only the first len limbs are
+	 * in use, and the limb at len-1 is never zero.
+	 */
+	private int[] value;
+
+	/**
+	 * Number of limbs in use
+	 */
+	private int len;
+
+	/**
+	 * Holds the limbs of an inline BigInteger while it is added, so small
+	 * values do not allocate
+	 */
+	private final int[] compactLimbs = new int[2];
+
+	/**
+	 * Initializes this integer to zero.
+	 */
+	public MutableBigInteger() {
+		this(8);
+	}
+
+	/**
+	 * Initializes this integer to zero, with room for the given number of
+	 * limbs before the buffer has to grow.
+	 *
+	 * @param capacity Initial buffer size, in limbs
+	 */
+	public MutableBigInteger(int capacity) {
+		negative = false;
+		value = new int[Math.max(capacity, 1)];
+		len = 0;
+	}
+
+	/**
+	 * Initializes this integer to the value of a BigInteger.
+	 *
+	 * @param initial Starting value, which is copied
+	 */
+	public MutableBigInteger(BigInteger initial) {
+		this(initial.numDigits / Limbs.BASE_DIGITS + 2);
+		addInPlace(initial);
+	}
+
+	/**
+	 * Adds an integer to this integer, in place.
+	 * NOTE that either or both of the integers involved could be negative.
+	 *
+	 * @param other Integer to add, null counts as zero
+	 */
+	public void addInPlace(BigInteger other) {
+		if(other != null) {
+			add(other, other.negative);
+		}
+	}
+
+	/**
+	 * Subtracts an integer from this integer, in place.
+	 *
+	 * @param other Integer to subtract, null counts as zero
+	 */
+	public void subtractInPlace(BigInteger other) {
+		if(other != null) {
+			add(other, !other.negative);
+		}
+	}
+
+	/**
+	 * Replaces this integer with this * multiplier + addend, in place. This is
+	 * the inner step of turning a stream of digits or limbs into a number.
+	 *
+	 * @param multiplier Value to multiply by, between 0 and 10^9 - 1
+	 * @param addend Value to add afterwards, between 0 and 10^9 - 1
+	 * @throws IllegalArgumentException If either value is out of range
+	 */
+	public void multiplyAddSmall(int multiplier, int addend)
+	throws IllegalArgumentException {
+		if(multiplier < 0 || multiplier >= Limbs.BASE || addend < 0 || addend >= Limbs.BASE) {
+			throw new IllegalArgumentException("Multiplier and addend must be between 0 and 999999999.");
+		}
+
+		//Scale the magnitude, the sign stays the same
+		if(multiplier == 0) {
+			len = 0;
+			negative = false;
+		} else if(multiplier != 1) {
+			ensureCapacity(len + 1);
+			long carry = 0;
+			for(int i = 0; i < len; i++) {
+				long product = value[i] * (long)multiplier + carry;
+				carry = product / Limbs.BASE;
+				value[i] = (int)(product - carry * Limbs.BASE);
+			}
+			if(carry != 0) {
+				value[len++] = (int)carry;
+			}
+		}
+
+		if(addend != 0) {
+			addSmall(addend);
+		}
+	}
+
+	/**
+	 * Multiplies this integer by 10^digits, in place, which appends that many
+	 * zeros to its decimal representation.
+	 *
+	 * @param digits Number of decimal places to shift by, at least 0
+	 * @throws IllegalArgumentException If digits is negative
+	 */
+	public void shiftLeftDigits(int digits)
+	throws IllegalArgumentException {
+		if(digits < 0) {
+			throw new IllegalArgumentException("Cannot shift by a negative number of digits.");
+		}
+		if(len == 0) {
+			return;
+		}
+
+		//Whole limbs just move up, the rest is a small multiply
+		int limbs = digits / Limbs.BASE_DIGITS;
+		if(limbs > 0) {
+			ensureCapacity(len + limbs + 1);
+			System.arraycopy(value, 0, value, limbs, len);
+			Arrays.fill(value, 0, limbs, 0);
+			len += limbs;
+		}
+		int factor = 1;
+		for(int i = digits % Limbs.BASE_DIGITS; i > 0; i--) {
+			factor *= 10;
+		}
+		multiplyAddSmall(factor, 0);
+	}
+
+	/**
+	 * Checks whether this integer is zero.
+	 *
+	 * @return True if this integer is zero
+	 */
+	public boolean isZero() {
+		return len == 0;
+	}
+
+	/**
+	 * Returns the current value as a BigInteger and resets this integer to
+	 * zero. The buffer itself becomes the BigInteger's magnitude when it is
+	 * exactly full, so no limbs are copied; otherwise the limbs in use are
+	 * copied once.
+	 *
+	 * @return BigInteger with the value this integer had
+	 */
+	public BigInteger freeze() {
+		int[] mag;
+		if(len == value.length) {
+			mag = value;
+			value = new int[8];
+		} else {
+			mag = Limbs.strip(value, len);
+		}
+		BigInteger result = new BigInteger(negative, mag);
+		len = 0;
+		negative = false;
+		return result;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	public String toString() {
+		return new BigInteger(negative, Arrays.copyOf(value, len)).toString();
+	}
+
+	/**
+	 * Adds the magnitude of a BigInteger into this integer, with the given sign.
+	 */
+	private void add(BigInteger other, boolean otherNegative) {
+		if(other.mag != null) {
+			add(otherNegative, other.mag, other.mag.length);
+			return;
+		}
+		long abs = Math.abs(other.compact);
+		compactLimbs[0] = (int)(abs % Limbs.BASE);
+		compactLimbs[1] = (int)(abs / Limbs.BASE);
+		add(otherNegative, compactLimbs, abs == 0 ? 0 : compactLimbs[1] == 0 ? 1 : 2);
+	}
+
+	/**
+	 * Adds a signed magnitude into this integer.
+	 *
+	 * @param otherNegative Sign of the value to add
+	 * @param other Magnitude of the value to add
+	 * @param otherLen Number of limbs of other in use
+	 */
+	void add(boolean otherNegative, int[] other, int otherLen) {
+		if(otherLen == 0) {
+			return;
+		}
+		if(len == 0) {
+			ensureCapacity(otherLen + 1);
+			System.arraycopy(other, 0, value, 0, otherLen);
+			len = otherLen;
+			negative = otherNegative;
+			return;
+		}
+
+		//Same signs just add the magnitudes and keep the sign
+		if(negative == otherNegative) {
+			int n = Math.max(len, otherLen);
+			ensureCapacity(n + 1);
+			int carry = 0, i = 0;
+			for(; i < otherLen; i++) {
+				int sum = (i < len ? value[i] : 0) + other[i] + carry;
+				carry = sum >= Limbs.BASE ? 1 : 0;
+				value[i] = sum - carry * Limbs.BASE;
+			}
+			for(; carry != 0 && i < len; i++) {
+				int sum = value[i] + carry;
+				carry = sum >= Limbs.BASE ? 1 : 0;
+				value[i] = sum - carry * Limbs.BASE;
+			}
+			len = Math.max(n, i);
+			if(carry != 0) {
+				value[len++] = carry;
+			}
+			return;
+		}
+
+		//Otherwise subtract the lesser magnitude from the greater one,
+		//and the answer takes the sign of the greater
+		if(compareMagnitude(other, otherLen) >= 0) {
+			int borrow = 0, i = 0;
+			for(; i < otherLen; i++) {
+				int diff = value[i] - other[i] - borrow;
+				borrow = diff < 0 ? 1 : 0;
+				value[i] = diff + borrow * Limbs.BASE;
+			}
+			for(; borrow != 0; i++) {
+				int diff = value[i] - borrow;
+				borrow = diff < 0 ? 1 : 0;
+				value[i] = diff + borrow * Limbs.BASE;
+			}
+		} else {
+			ensureCapacity(otherLen);
+			int borrow = 0;
+			for(int i = 0; i < otherLen; i++) {
+				int diff = other[i] - (i < len ? value[i] : 0) - borrow;
+				borrow = diff < 0 ? 1 : 0;
+				value[i] = diff + borrow * Limbs.BASE;
+			}
+			len = otherLen;
+			negative = otherNegative;
+		}
+		normalize();
+	}
+
+	/**
+	 * Adds a positive single-limb value into this integer without
+	 * allocating a magnitude for it.
+	 */
+	private void addSmall(int addend) {
+		//A negative value no bigger than the addend flips over to positive
+		if(len == 0 || (negative && len == 1 && value[0] <= addend)) {
+			ensureCapacity(1);
+			value[0] = addend - (len == 0 ? 0 : value[0]);
+			len = 1;
+			negative = false;
+			normalize();
+			return;
+		}
+
+		if(!negative) {
+			ensureCapacity(len + 1);
+			int carry = addend;
+			for(int i = 0; carry != 0; i++) {
+				int sum = (i < len ? value[i] : 0) + carry;
+				carry = sum >= Limbs.BASE ? 1 : 0;
+				value[i] = sum - carry * Limbs.BASE;
+				if(i == len) {
+					len++;
+				}
+			}
+		} else {
+			int borrow = addend;
+			for(int i = 0; borrow != 0; i++) {
+				int diff = value[i] - borrow;
+				borrow = diff < 0 ? 1 : 0;
+				value[i] = diff + borrow * Limbs.BASE;
+			}
+			normalize();
+		}
+	}
+
+	/**
+	 * Compares the magnitude of this integer with another magnitude.
+	 */
+	private int compareMagnitude(int[] other, int otherLen) {
+		if(len != otherLen) {
+			return len < otherLen ? -1 : 1;
+		}
+		for(int i = len - 1; i >= 0; i--) {
+			if(value[i] != other[i]) {
+				return value[i] < other[i] ? -1 : 1;
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * Drops leading zero limbs, and makes zero positive.
+	 */
+	private void normalize() {
+		while(len > 0 && value[len-1] == 0) {
+			len--;
+		}
+		if(len == 0) {
+			negative = false;
+		}
+	}
+
+	/**
+	 * Grows the buffer to hold at least the given number of limbs. The size
+	 * at least doubles each time, so a long series of additions stays linear.
+	 */
+	private void ensureCapacity(int capacity) {
+		if(capacity > value.length) {
+			value = Arrays.copyOf(value, Math.max(capacity, value.length * 2));
+		}
+	}
+}
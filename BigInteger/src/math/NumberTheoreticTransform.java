@@ -0,0 +1,372 @@
+package math;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Exact multiplication of very large magnitudes with number-theoretic
+ * transforms. The limbs are convolved modulo three NTT-friendly primes,
+ * and each coefficient of the product is put back together with the
+ * Chinese Remainder Theorem (Garner's method) before carrying in base 10^9.
+ *
+ * A product coefficient is at most n * (10^9)^2 for operands of n limbs,
+ * which stays below the product of the three primes (about 7.8 * 10^25)
+ * as long as the transform is no longer than MAX_LENGTH.
+ *
+ */
+final class NumberTheoreticTransform {
+
+	/**
+	 * The three primes, all of the form c * 2^k + 1 with 3 as a primitive root
+	 */
+	private static final int P1 = 998244353;	// 119 * 2^23 + 1
+	private static final int P2 = 167772161;	//   5 * 2^25 + 1
+	private static final int P3 = 469762049;	//   7 * 2^26 + 1
+	private static final int GENERATOR = 3;
+
+	/**
+	 * Longest supported transform, limited by the 2^23 factor of P1
+	 */
+	static final int MAX_LENGTH = 1 << 23;
+
+	/**
+	 * Constants for Garner's reconstruction
+	 */
+	private static final long P1_INV_MOD_P2 = power(P1 % P2, P2 - 2, P2);
+	private static final long P1_INV_MOD_P3 = power(P1 % P3, P3 - 2, P3);
+	private static final long P2_INV_MOD_P3 = power(P2 % P3, P3 - 2, P3);
+	private static final long P1_P2 = (long)P1 * P2;
+	private static final long P1_P2_HIGH = P1_P2 / Limbs.BASE;
+	private static final long P1_P2_LOW = P1_P2 % Limbs.BASE;
+
+	// prevent instantiation
+	private NumberTheoreticTransform() { }
+
+	/**
+	 * Checks whether a product with the given number of limbs can be computed
+	 * with a transform.
+	 *
+	 * @param resultLength Number of limbs in the product
+	 * @return True if the product fits in a transform of at most MAX_LENGTH
+	 */
+	static boolean fits(int resultLength) {
+		return resultLength <= MAX_LENGTH;
+	}
+
+	/**
+	 * Multiplies two nonzero magnitudes.
+	 *
+	 * @param a First magnitude
+	 * @param b Second magnitude
+	 * @return Normalized magnitude of {@code a * b}
+	 */
+	static int[] multiply(int[] a, int[] b) {
+		int n = transformLength(a.length + b.length);
+		int[] r1 = convolve(a, b, n, P1, false);
+		int[] r2 = convolve(a, b, n, P2, false);
+		int[] r3 = convolve(a, b, n, P3, false);
+		return reconstruct(r1, r2, r3, a.length + b.length);
+	}
+
+	/**
+	 * Multiplies two nonzero magnitudes with the work spread over fork/join
+	 * tasks: the three primes are convolved side by side, and each transform
+	 * splits its butterflies into blocks. This must be called from a task
+	 * running in a ForkJoinPool.
+	 *
+	 * @param a First magnitude
+	 * @param b Second magnitude
+	 * @return Normalized magnitude of {@code a * b}
+	 */
+	static int[] multiplyParallel(final int[] a, final int[] b) {
+		final int n = transformLength(a.length + b.length);
+		final int[][] residues = new int[3][];
+		final int[] primes = {P1, P2, P3};
+		List<RecursiveAction> convolutions = new ArrayList<>();
+		for(int i = 0; i < primes.length; i++) {
+			final int index = i;
+			convolutions.add(new RecursiveAction() {
+				private static final long serialVersionUID = 1L;
+
+				protected void compute() {
+					residues[index] = convolve(a, b, n, primes[index], true);
+				}
+			});
+		}
+		ForkJoinTask.invokeAll(convolutions);
+		return reconstruct(residues[0], residues[1], residues[2], a.length + b.length);
+	}
+
+	/**
+	 * Squares a nonzero magnitude. Only one forward transform is needed
+	 * per prime, since both factors are the same.
+	 *
+	 * @param a Magnitude
+	 * @return Normalized magnitude of {@code a * a}
+	 */
+	static int[] square(int[] a) {
+		int n = transformLength(2 * a.length);
+		int[] r1 = convolve(a, null, n, P1, false);
+		int[] r2 = convolve(a, null, n, P2, false);
+		int[] r3 = convolve(a, null, n, P3, false);
+		return reconstruct(r1, r2, r3, 2 * a.length);
+	}
+
+	/**
+	 * Smallest power of two that holds the given number of coefficients
+	 */
+	private static int transformLength(int resultLength) {
+		int n = 1;
+		while(n < resultLength) {
+			n <<= 1;
+		}
+		return n;
+	}
+
+	/**
+	 * Cyclic convolution of two magnitudes modulo a prime, padded to n.
+	 *
+	 * @param a First magnitude
+	 * @param b Second magnitude, or null to square {@code a}
+	 * @param n Transform length, a power of two
+	 * @param p Prime modulus
+	 * @param parallel True to run the transforms as fork/join tasks
+	 * @return The n convolution coefficients modulo p
+	 */
+	private static int[] convolve(int[] a, int[] b, int n, int p, boolean parallel) {
+		int[] roots = roots(n, p);
+		int[] fa = reduce(a, n, p);
+		int[] fb = fa;
+		if(b != null) {
+			fb = reduce(b, n, p);
+		}
+		if(parallel && fb != fa) {
+			ForkJoinTask.invokeAll(new TransformTask(fa, roots, p), new TransformTask(fb, roots, p));
+		} else if(parallel) {
+			new TransformTask(fa, roots, p).invoke();
+		} else {
+			transform(fa, roots, p);
+			if(fb != fa) {
+				transform(fb, roots, p);
+			}
+		}
+
+		//Pointwise product, then the inverse transform, which is the
+		//forward transform with the outputs 1..n-1 reversed and scaled by 1/n
+		for(int i = 0; i < n; i++) {
+			fa[i] = (int)((long)fa[i] * fb[i] % p);
+		}
+		if(parallel) {
+			new TransformTask(fa, roots, p).invoke();
+		} else {
+			transform(fa, roots, p);
+		}
+		long nInverse = power(n, p - 2, p);
+		int[] result = new int[n];
+		result[0] = (int)(fa[0] * nInverse % p);
+		for(int i = 1; i < n; i++) {
+			result[i] = (int)(fa[n - i] * nInverse % p);
+		}
+		return result;
+	}
+
+	/**
+	 * Copies a magnitude into a transform buffer, reducing each limb mod p.
+	 * Limbs go up to BASE - 1, which is several times the smaller primes, so
+	 * one conditional subtraction would not do.
+	 */
+	private static int[] reduce(int[] a, int n, int p) {
+		int[] result = new int[n];
+		for(int i = 0; i < a.length; i++) {
+			result[i] = a[i] % p;
+		}
+		return result;
+	}
+
+	/**
+	 * Powers 0..n/2-1 of a primitive n-th root of unity modulo p
+	 */
+	private static int[] roots(int n, int p) {
+		int[] roots = new int[Math.max(1, n / 2)];
+		long w = power(GENERATOR, (p - 1) / n, p);
+		long cur = 1;
+		for(int i = 0; i < roots.length; i++) {
+			roots[i] = (int)cur;
+			cur = cur * w % p;
+		}
+		return roots;
+	}
+
+	/**
+	 * In-place iterative radix-2 transform (Cooley-Tukey, bit-reversed input).
+	 *
+	 * @param a Coefficients modulo p, length n
+	 * @param roots Root table from roots(n, p)
+	 * @param p Prime modulus
+	 */
+	private static void transform(int[] a, int[] roots, int p) {
+		bitReverse(a);
+		for(int len = 2; len <= a.length; len <<= 1) {
+			butterflies(a, roots, p, len, 0, a.length / 2);
+		}
+	}
+
+	/**
+	 * Bit-reversal permutation, the input order the iterative transform expects
+	 */
+	private static void bitReverse(int[] a) {
+		int n = a.length;
+		for(int i = 1, j = 0; i < n; i++) {
+			int bit = n >> 1;
+			for(; (j & bit) != 0; bit >>= 1) {
+				j ^= bit;
+			}
+			j ^= bit;
+			if(i < j) {
+				int tmp = a[i];
+				a[i] = a[j];
+				a[j] = tmp;
+			}
+		}
+	}
+
+	/**
+	 * Runs a range of the butterflies of one stage. A stage of block length
+	 * len has n/2 butterflies; butterfly t combines the elements start + j and
+	 * start + j + len/2, where start = (t / (len/2)) * len and j = t % (len/2).
+	 * Different butterflies of a stage never touch the same elements.
+	 *
+	 * @param a Coefficients modulo p
+	 * @param roots Root table from roots(n, p)
+	 * @param p Prime modulus
+	 * @param len Block length of the stage
+	 * @param from First butterfly to run
+	 * @param to Butterfly to stop before
+	 */
+	private static void butterflies(int[] a, int[] roots, int p, int len, int from, int to) {
+		int half = len >> 1, step = a.length / len;
+		for(int t = from; t < to; ) {
+			int start = (t / half) * len;
+			for(int j = t % half; j < half && t < to; j++, t++) {
+				int u = a[start + j];
+				int v = (int)((long)a[start + j + half] * roots[j * step] % p);
+				int sum = u + v;
+				a[start + j] = sum >= p ? sum - p : sum;
+				int diff = u - v;
+				a[start + j + half] = diff < 0 ? diff + p : diff;
+			}
+		}
+	}
+
+	/**
+	 * A whole transform as a fork/join task. The stages up to PARALLEL_BLOCK
+	 * stay inside blocks of that many elements, so each block runs them as one
+	 * task; every later stage is split into tasks of PARALLEL_BLOCK / 2
+	 * butterflies, one stage at a time.
+	 */
+	private static final class TransformTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * Elements per task, small enough to stay in cache
+		 */
+		static final int PARALLEL_BLOCK = 1 << 14;
+
+		final int[] a, roots;
+		final int p;
+
+		TransformTask(int[] a, int[] roots, int p) {
+			this.a = a;
+			this.roots = roots;
+			this.p = p;
+		}
+
+		protected void compute() {
+			final int n = a.length;
+			if(n <= PARALLEL_BLOCK) {
+				transform(a, roots, p);
+				return;
+			}
+			bitReverse(a);
+
+			//Early stages, one task per block running all of them
+			List<RecursiveAction> tasks = new ArrayList<>();
+			for(int block = 0; block < n; block += PARALLEL_BLOCK) {
+				final int from = block / 2, to = (block + PARALLEL_BLOCK) / 2;
+				tasks.add(new RecursiveAction() {
+					private static final long serialVersionUID = 1L;
+
+					protected void compute() {
+						for(int len = 2; len <= PARALLEL_BLOCK; len <<= 1) {
+							butterflies(a, roots, p, len, from, to);
+						}
+					}
+				});
+			}
+			invokeAll(tasks);
+
+			//Later stages, split into ranges of butterflies
+			for(int len = PARALLEL_BLOCK << 1; len <= n; len <<= 1) {
+				final int stage = len;
+				tasks.clear();
+				for(int t = 0; t < n / 2; t += PARALLEL_BLOCK / 2) {
+					final int from = t, to = t + PARALLEL_BLOCK / 2;
+					tasks.add(new RecursiveAction() {
+						private static final long serialVersionUID = 1L;
+
+						protected void compute() {
+							butterflies(a, roots, p, stage, from, to);
+						}
+					});
+				}
+				invokeAll(tasks);
+			}
+		}
+	}
+
+	/**
+	 * Rebuilds every coefficient from its three residues with Garner's method
+	 * and carries the result into base 10^9 limbs.
+	 *
+	 * @param r1 Coefficients modulo P1
+	 * @param r2 Coefficients modulo P2
+	 * @param r3 Coefficients modulo P3
+	 * @param resultLength Number of limbs in the product
+	 * @return Normalized magnitude of the product
+	 */
+	private static int[] reconstruct(int[] r1, int[] r2, int[] r3, int resultLength) {
+		int[] result = new int[resultLength];
+		long carry = 0;
+		for(int i = 0; i < resultLength; i++) {
+			long x1 = r1[i];
+			long x2 = (r2[i] - x1 % P2 + P2) % P2 * P1_INV_MOD_P2 % P2;
+			long x3 = ((r3[i] - x1 % P3 + P3) % P3 * P1_INV_MOD_P3 % P3 - x2 % P3 + P3) % P3
+					* P2_INV_MOD_P3 % P3;
+
+			//The coefficient is x1 + x2*P1 + x3*P1*P2, which can pass 2^64,
+			//so the last term is split around the limb base before carrying
+			long low = x1 + x2 * P1 + x3 * P1_P2_LOW + carry;
+			result[i] = (int)(low % Limbs.BASE);
+			carry = low / Limbs.BASE + x3 * P1_P2_HIGH;
+		}
+		return Limbs.strip(result, resultLength);
+	}
+
+	/**
+	 * Modular exponentiation by repeated squaring, for the setup constants
+	 */
+	private static long power(long base, long exponent, long p) {
+		long result = 1;
+		base %= p;
+		while(exponent > 0) {
+			if((exponent & 1) != 0) {
+				result = result * base % p;
+			}
+			base = base * base % p;
+			exponent >>= 1;
+		}
+		return result;
+	}
+}
@@ -0,0 +1,123 @@
+package math;
+
+/**
+ * Integer powers and roots of normalized magnitudes (see Limbs).
+ *
+ * Powers use binary exponentiation, so a power to the e takes about log2(e)
+ * squarings, which go through Multiplication.square.
+ *
+ * Roots use Newton's iteration on integers,
+ *    x' = ((n-1) x + a / x^(n-1)) / n,
+ * which stops at floor(a^(1/n)) once x stops decreasing. Started cold it
+ * would need many steps at full size, so the starting value is the root of
+ * the top half of the number, found the same way, recursively. Each level
+ * doubles the precision of its start, and then only needs a couple of
+ * full-size steps to finish, so the whole root costs a small constant
+ * number of full-size multiplications and divisions.
+ *
+ */
+final class Powers {
+
+	/**
+	 * Root length in limbs at or below which the starting value is taken
+	 * from floating point
+	 */
+	private static final int ESTIMATE_LIMBS = 4;
+
+	// prevent instantiation
+	private Powers() { }
+
+	/**
+	 * Raises a magnitude to a power.
+	 *
+	 * @param base Nonzero magnitude
+	 * @param exponent Positive exponent
+	 * @return Normalized magnitude of {@code base^exponent}
+	 */
+	static int[] pow(int[] base, int exponent) {
+		//Left to right over the bits of the exponent: square for every bit,
+		//and multiply by the base for every bit that is set
+		int[] result = base;
+		for(int bit = 30 - Integer.numberOfLeadingZeros(exponent); bit >= 0; bit--) {
+			result = Multiplication.square(result);
+			if((exponent & (1 << bit)) != 0) {
+				result = Multiplication.multiply(result, base);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Computes the integer part of a root of a magnitude.
+	 *
+	 * @param a Nonzero magnitude
+	 * @param n Degree of the root, at least 2
+	 * @return Normalized magnitude of {@code floor(a^(1/n))}
+	 */
+	static int[] root(int[] a, int n) {
+		int rootLimbs = (a.length + n - 1) / n;
+		int[] x;
+		if(rootLimbs <= ESTIMATE_LIMBS) {
+			x = estimate(a, n);
+		} else {
+			//The root of a / BASE^(n*k), moved up by k limbs, is off by less
+			//than BASE^k. Keeping k below half the root length makes one
+			//Newton step enough to bring that error under one.
+			int k = (rootLimbs - 3) / 2;
+			int[] top = root(Limbs.slice(a, n * k, a.length), n);
+			x = Limbs.shiftLeft(Limbs.add(top, new int[] {1}), k);
+		}
+
+		//Whatever the start, one step lands at or above the root, and from
+		//there the steps decrease until they reach it
+		x = newtonStep(a, x, n);
+		while(true) {
+			int[] next = newtonStep(a, x, n);
+			if(Limbs.compare(next, x) >= 0) {
+				return x;
+			}
+			x = next;
+		}
+	}
+
+	/**
+	 * One integer Newton step toward the n-th root of a, from x.
+	 */
+	private static int[] newtonStep(int[] a, int[] x, int n) {
+		int[] power = n == 2 ? x : pow(x, n - 1);
+		int[] quotient = Division.divideAndRemainder(a, power)[0];
+		int[] sum = Limbs.add(Limbs.multiplySmall(x, n - 1), quotient);
+		int[] next = Limbs.divideSmall(sum, n);
+		//The step never goes below the root, which is at least one
+		return next.length == 0 ? new int[] {1} : next;
+	}
+
+	/**
+	 * Estimates the n-th root of a in floating point, from its top limbs.
+	 * The estimate is positive and accurate to about 15 digits.
+	 */
+	private static int[] estimate(int[] a, int n) {
+		//log10(a), from up to three top limbs and the number of limbs below
+		int top = Math.min(a.length, 3);
+		double lead = 0;
+		for(int i = a.length - 1; i >= a.length - top; i--) {
+			lead = lead * Limbs.BASE + a[i];
+		}
+		double log = Math.log10(lead) + (double)(a.length - top) * Limbs.BASE_DIGITS;
+
+		//Keep 17 digits in a long, and append the rest as zeros
+		double rootLog = log / n;
+		int zeros = Math.max(0, (int)rootLog - 17);
+		long digits = Math.max(1, (long)Math.pow(10, rootLog - zeros));
+		int[] x = Limbs.valueOf(digits);
+		if(zeros > 0) {
+			x = Limbs.shiftLeft(x, zeros / Limbs.BASE_DIGITS);
+			int factor = 1;
+			for(int i = zeros % Limbs.BASE_DIGITS; i > 0; i--) {
+				factor *= 10;
+			}
+			x = Limbs.multiplySmall(x, factor);
+		}
+		return x;
+	}
+}
@@ -0,0 +1,124 @@
+package math;
+
+import java.util.Arrays;
+
+/**
+ * Conversion of magnitudes (see Limbs) to and from java.math.BigInteger.
+ *
+ * The two sides use different bases, 10^9 here and 2^32 there, so some
+ * arithmetic cannot be avoided, but going through decimal text is not
+ * needed either. Both directions split the number in halves at a power
+ * BASE^(2^k), which turns the conversion into a few large multiplications
+ * or divisions on the java.math side instead of one small step per limb.
+ * Those powers are computed once and cached.
+ *
+ */
+final class RadixConversion {
+
+	/**
+	 * Limb count at or below which limbs are combined one at a time
+	 */
+	private static final int LEAF_LIMBS = 16;
+
+	/**
+	 * Cache of BASE^(2^k) at index k, grown on demand. The array is replaced,
+	 * never changed, so it can be read without locking.
+	 */
+	private static volatile java.math.BigInteger[] powers = {
+		java.math.BigInteger.valueOf(Limbs.BASE)
+	};
+
+	// prevent instantiation
+	private RadixConversion() { }
+
+	/**
+	 * Converts a magnitude to a nonnegative java.math.BigInteger.
+	 *
+	 * @param mag Normalized magnitude
+	 * @return Value of the magnitude
+	 */
+	static java.math.BigInteger toJava(int[] mag) {
+		return toJava(mag, 0, mag.length);
+	}
+
+	/**
+	 * Converts a nonnegative java.math.BigInteger to a magnitude.
+	 *
+	 * @param value Nonnegative value
+	 * @return Normalized magnitude of the value
+	 */
+	static int[] fromJava(java.math.BigInteger value) {
+		if(value.signum() == 0) {
+			return Limbs.EMPTY;
+		}
+		//log10(2) / 9 rounded up bounds the limbs needed per bit
+		int limbs = (int)(value.bitLength() * 0.0334478 + 1);
+		int[] mag = new int[limbs];
+		fromJava(value, mag, 0, limbs);
+		return Limbs.strip(mag, limbs);
+	}
+
+	/**
+	 * Converts the limbs from (inclusive) to to (exclusive) of a magnitude.
+	 */
+	private static java.math.BigInteger toJava(int[] mag, int from, int to) {
+		int n = to - from;
+		if(n <= LEAF_LIMBS) {
+			//Two limbs at a time still fit in a long
+			java.math.BigInteger result = java.math.BigInteger.ZERO;
+			int i = to - 1;
+			if(n % 2 != 0) {
+				result = java.math.BigInteger.valueOf(mag[i--]);
+			}
+			for(; i > from; i -= 2) {
+				long pair = mag[i] * (long)Limbs.BASE + mag[i-1];
+				result = result.multiply(power(1)).add(java.math.BigInteger.valueOf(pair));
+			}
+			return result;
+		}
+
+		//Split at the largest power of two below n, so the cached power fits
+		int k = 31 - Integer.numberOfLeadingZeros(n - 1);
+		int half = 1 << k;
+		java.math.BigInteger low = toJava(mag, from, from + half);
+		java.math.BigInteger high = toJava(mag, from + half, to);
+		return high.multiply(power(k)).add(low);
+	}
+
+	/**
+	 * Writes a value below BASE^n into the n limbs of mag starting at offset,
+	 * which are all zero beforehand.
+	 */
+	private static void fromJava(java.math.BigInteger value, int[] mag, int offset, int n) {
+		if(value.bitLength() < 63) {
+			for(long v = value.longValue(); v != 0; v /= Limbs.BASE) {
+				mag[offset++] = (int)(v % Limbs.BASE);
+			}
+			return;
+		}
+
+		int k = 31 - Integer.numberOfLeadingZeros(n - 1);
+		int half = 1 << k;
+		java.math.BigInteger[] qr = value.divideAndRemainder(power(k));
+		fromJava(qr[1], mag, offset, half);
+		fromJava(qr[0], mag, offset + half, n - half);
+	}
+
+	/**
+	 * Returns BASE^(2^k) from the cache, squaring up to it if needed.
+	 */
+	private static java.math.BigInteger power(int k) {
+		java.math.BigInteger[] cache = powers;
+		if(k < cache.length) {
+			return cache[k];
+		}
+		//Two threads may both extend the cache, which only wastes some work
+		int known = cache.length;
+		cache = Arrays.copyOf(cache, k + 1);
+		for(int i = known; i <= k; i++) {
+			cache[i] = cache[i-1].multiply(cache[i-1]);
+		}
+		powers = cache;
+		return cache[k];
+	}
+}
@@ -0,0 +1,260 @@
+package math;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Sums and products of many integers at once. Folding a long list with add
+ * or multiply one value at a time allocates a new result per step, and for
+ * products keeps multiplying one huge partial result by one small factor.
+ * Instead:
+ *  - sums are collected carry-save, with every limb position in a long that
+ *    can absorb billions of limbs before a carry has to be propagated,
+ *  - products are computed as a balanced tree, so the large multiplications
+ *    are between operands of similar size, where the fast algorithms in
+ *    Multiplication pay off.
+ *
+ */
+final class Reduction {
+
+	/**
+	 * Additions between two carry propagations. Each one adds less than BASE
+	 * to a limb position, so a long position cannot overflow in between.
+	 */
+	private static final int CARRY_INTERVAL = 1 << 30;
+
+	/**
+	 * Factor count below which a product subtree is not split into tasks
+	 */
+	private static final int PARALLEL_GRAIN = 64;
+
+	// prevent instantiation
+	private Reduction() { }
+
+	/**
+	 * Adds up a sequence of integers.
+	 *
+	 * @param values Integers to add, null elements count as zero
+	 * @return Sum of the integers, 0 if there are none
+	 */
+	static BigInteger sum(Iterable<? extends BigInteger> values) {
+		//Positive and negative values go in separate accumulators, so that
+		//neither ever has to borrow, and meet in one subtraction at the end
+		CarrySaveAccumulator positive = new CarrySaveAccumulator();
+		CarrySaveAccumulator negative = new CarrySaveAccumulator();
+		for(BigInteger value : values) {
+			if(value != null && !value.isZero()) {
+				(value.negative ? negative : positive).add(value);
+			}
+		}
+		return new BigInteger(false, positive.magnitude())
+				.add(new BigInteger(true, negative.magnitude()));
+	}
+
+	/**
+	 * Multiplies a sequence of integers.
+	 *
+	 * @param values Integers to multiply, null elements count as zero
+	 * @param pool Pool to compute the product tree on, or null to compute it
+	 *        on the calling thread
+	 * @return Product of the integers, 1 if there are none
+	 */
+	static BigInteger product(Iterable<? extends BigInteger> values, ForkJoinPool pool) {
+		LeafPacker leaves = new LeafPacker();
+		boolean negative = false;
+		for(BigInteger value : values) {
+			if(value == null || value.isZero()) {
+				return BigInteger.ZERO;
+			}
+			negative ^= value.negative;
+			if(value.mag == null) {
+				leaves.multiply(Math.abs(value.compact));
+			} else {
+				leaves.multiply(value.mag);
+			}
+		}
+		return new BigInteger(negative, leaves.product(pool));
+	}
+
+	/**
+	 * Multiplies the integers from {@code from} to {@code to}, inclusive.
+	 *
+	 * @param from Smallest factor, at least 1
+	 * @param to Largest factor
+	 * @param pool Pool to compute the product tree on, or null to compute it
+	 *        on the calling thread
+	 * @return Normalized magnitude of the product, 1 if the range is empty
+	 */
+	static int[] rangeProduct(long from, long to, ForkJoinPool pool) {
+		LeafPacker leaves = new LeafPacker();
+		for(long i = from; i <= to; i++) {
+			leaves.multiply(i);
+		}
+		return leaves.product(pool);
+	}
+
+	/**
+	 * Multiplies mags[from] through mags[to - 1] as a balanced binary tree.
+	 */
+	private static int[] productTree(int[][] mags, int from, int to) {
+		if(to - from == 1) {
+			return mags[from];
+		}
+		int mid = (from + to) >>> 1;
+		return Multiplication.multiply(productTree(mags, from, mid), productTree(mags, mid, to));
+	}
+
+	/**
+	 * A product subtree computed as a fork/join task. The two halves run side
+	 * by side, and the multiplication joining them is itself split into
+	 * tasks once the halves are large.
+	 */
+	private static final class ProductTask extends RecursiveTask<int[]> {
+		private static final long serialVersionUID = 1L;
+
+		final int[][] mags;
+		final int from, to;
+
+		ProductTask(int[][] mags, int from, int to) {
+			this.mags = mags;
+			this.from = from;
+			this.to = to;
+		}
+
+		protected int[] compute() {
+			if(to - from <= PARALLEL_GRAIN) {
+				return productTree(mags, from, to);
+			}
+			int mid = (from + to) >>> 1;
+			ProductTask left = new ProductTask(mags, from, mid);
+			left.fork();
+			int[] right = new ProductTask(mags, mid, to).compute();
+			return Multiplication.multiplyInTask(left.join(), right);
+		}
+	}
+
+	/**
+	 * Collects the leaves of a product tree. Small factors are multiplied
+	 * together into one long for as long as it fits, so a range like 1..n
+	 * turns into a few leaves of about 18 digits each instead of n tiny ones.
+	 */
+	private static final class LeafPacker {
+		private final List<int[]> leaves = new ArrayList<>();
+		private long packed = 1;
+
+		/**
+		 * Multiplies in a nonnegative factor below 2^63.
+		 */
+		void multiply(long factor) {
+			if(Long.numberOfLeadingZeros(packed) + Long.numberOfLeadingZeros(factor) < 65) {
+				flush();
+			}
+			packed *= factor;
+		}
+
+		/**
+		 * Multiplies in a factor given as a normalized magnitude.
+		 */
+		void multiply(int[] mag) {
+			leaves.add(mag);
+		}
+
+		/**
+		 * Multiplies all the factors so far.
+		 */
+		int[] product(ForkJoinPool pool) {
+			flush();
+			if(leaves.isEmpty()) {
+				return new int[] {1};
+			}
+			int[][] mags = leaves.toArray(new int[leaves.size()][]);
+			if(pool == null) {
+				return productTree(mags, 0, mags.length);
+			}
+			return pool.invoke(new ProductTask(mags, 0, mags.length));
+		}
+
+		private void flush() {
+			if(packed != 1) {
+				leaves.add(Limbs.valueOf(packed));
+				packed = 1;
+			}
+		}
+	}
+
+	/**
+	 * A nonnegative sum that defers its carries. Every limb position is a
+	 * long, so limbs can be added in without carrying, and carries are only
+	 * propagated every CARRY_INTERVAL additions and at the end.
+	 */
+	private static final class CarrySaveAccumulator {
+		private long[] limbs = new long[4];
+		private int len = 0;
+		private int pending = 0;
+
+		/**
+		 * Adds the magnitude of a nonzero integer.
+		 */
+		void add(BigInteger value) {
+			if(value.mag == null) {
+				long abs = Math.abs(value.compact);
+				ensureLength(2);
+				limbs[0] += abs % Limbs.BASE;
+				limbs[1] += abs / Limbs.BASE;
+			} else {
+				int[] mag = value.mag;
+				ensureLength(mag.length);
+				for(int i = 0; i < mag.length; i++) {
+					limbs[i] += mag[i];
+				}
+			}
+			if(++pending == CARRY_INTERVAL) {
+				propagate();
+			}
+		}
+
+		/**
+		 * Returns the sum as a normalized magnitude.
+		 */
+		int[] magnitude() {
+			propagate();
+			int[] mag = new int[len];
+			for(int i = 0; i < len; i++) {
+				mag[i] = (int)limbs[i];
+			}
+			return Limbs.strip(mag, len);
+		}
+
+		/**
+		 * Brings every limb position back below BASE.
+		 */
+		private void propagate() {
+			long carry = 0;
+			for(int i = 0; i < len; i++) {
+				long sum = limbs[i] + carry;
+				carry = sum / Limbs.BASE;
+				limbs[i] = sum - carry * Limbs.BASE;
+			}
+			while(carry != 0) {
+				ensureLength(len + 1);
+				limbs[len-1] = carry % Limbs.BASE;
+				carry /= Limbs.BASE;
+			}
+			pending = 0;
+		}
+
+		/**
+		 * Makes at least the first n limb positions available.
+		 */
+		private void ensureLength(int n) {
+			if(n > limbs.length) {
+				long[] grown = new long[Math.max(n, limbs.length * 2)];
+				System.arraycopy(limbs, 0, grown, 0, len);
+				limbs = grown;
+			}
+			len = Math.max(len, n);
+		}
+	}
+}
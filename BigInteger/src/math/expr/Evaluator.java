@@ -0,0 +1,266 @@
+package math.expr;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import math.BigInteger;
+
+/**
+ * Computes the values of expression DAGs.
+ *
+ * Evaluation is lazy: nothing is computed when an expression is built, and
+ * evaluate only computes the nodes the requested expression depends on.
+ * Each of those is computed once per call, however many times it is shared,
+ * and the values of operator nodes are also kept in a bounded
+ * least-recently-used cache, so later calls reuse them. Subtrees whose
+ * value is cached are not visited at all.
+ *
+ * With a fork/join pool, nodes are computed in rounds: every node whose
+ * operands are known runs in the same round, side by side, so independent
+ * branches are evaluated in parallel.
+ *
+ */
+public final class Evaluator {
+
+	/**
+	 * Number of values cached by the default constructor
+	 */
+	public static final int DEFAULT_CACHE_SIZE = 1024;
+
+	private final ResultCache cache;
+	private final ForkJoinPool pool;
+
+	/**
+	 * Initializes a sequential evaluator with the default cache size.
+	 */
+	public Evaluator() {
+		this(DEFAULT_CACHE_SIZE, null);
+	}
+
+	/**
+	 * Initializes an evaluator.
+	 *
+	 * @param cacheSize Largest number of values to cache, 0 for none
+	 * @param pool Pool to evaluate independent branches on, or null to
+	 *        evaluate everything on the calling thread
+	 * @throws IllegalArgumentException If cacheSize is negative
+	 */
+	public Evaluator(int cacheSize, ForkJoinPool pool)
+	throws IllegalArgumentException {
+		if(cacheSize < 0) {
+			throw new IllegalArgumentException("Cache size must not be negative.");
+		}
+		this.cache = new ResultCache(cacheSize);
+		this.pool = pool;
+	}
+
+	/**
+	 * Computes the value of an expression.
+	 *
+	 * @param e Expression to evaluate
+	 * @return Value of the expression
+	 * @throws ArithmeticException If the expression divides by zero
+	 */
+	public BigInteger evaluate(Expression e)
+	throws ArithmeticException {
+		if(e.operator == Operator.CONSTANT) {
+			return e.value;
+		}
+		BigInteger cached = cache.get(e);
+		if(cached != null) {
+			return cached;
+		}
+
+		Plan plan = new Plan(e);
+		if(pool == null || plan.rounds.size() == 1 && plan.rounds.get(0).length == 1) {
+			for(int[] round : plan.rounds) {
+				for(int node : round) {
+					plan.compute(node);
+				}
+			}
+		} else {
+			pool.invoke(new RoundsTask(plan));
+		}
+		return plan.values[plan.values.length - 1];
+	}
+
+	/**
+	 * Returns the number of values currently cached.
+	 *
+	 * @return Cached value count
+	 */
+	public int cacheSize() {
+		return cache.size();
+	}
+
+	/**
+	 * Drops every cached value.
+	 */
+	public void clearCache() {
+		cache.clear();
+	}
+
+	/**
+	 * The nodes one evaluation has to compute, in an order where operands come
+	 * before the nodes that use them, grouped into rounds of nodes that do not
+	 * depend on each other.
+	 */
+	private final class Plan {
+		final List<Expression> nodes = new ArrayList<>();
+		final List<int[]> rounds = new ArrayList<>();
+		final BigInteger[] values;
+
+		/**
+		 * Operand positions in nodes, or -1 for an operand whose value is
+		 * already known (a constant or cached)
+		 */
+		final int[] left, right;
+
+		/**
+		 * Values of the operands that are already known
+		 */
+		final BigInteger[] knownLeft, knownRight;
+
+		Plan(Expression root) {
+			//Depth-first walk with an explicit stack, since expressions can be
+			//far deeper than the call stack allows. A node is numbered once
+			//all its operands have been numbered.
+			IdentityHashMap<Expression, Integer> index = new IdentityHashMap<>();
+			IdentityHashMap<Expression, BigInteger> known = new IdentityHashMap<>();
+			ArrayDeque<Expression> stack = new ArrayDeque<>();
+			stack.push(root);
+			while(!stack.isEmpty()) {
+				Expression e = stack.peek();
+				if(index.containsKey(e) || known.containsKey(e)) {
+					stack.pop();
+					continue;
+				}
+				boolean ready = true;
+				for(Expression operand : new Expression[] {e.left, e.right}) {
+					if(operand == null || index.containsKey(operand) || known.containsKey(operand)) {
+						continue;
+					}
+					BigInteger value = operand.operator == Operator.CONSTANT ? operand.value : cache.get(operand);
+					if(value != null) {
+						known.put(operand, value);
+					} else {
+						stack.push(operand);
+						ready = false;
+					}
+				}
+				if(ready) {
+					stack.pop();
+					index.put(e, nodes.size());
+					nodes.add(e);
+				}
+			}
+
+			int n = nodes.size();
+			values = new BigInteger[n];
+			left = new int[n];
+			right = new int[n];
+			knownLeft = new BigInteger[n];
+			knownRight = new BigInteger[n];
+
+			//A node's round is one past the latest round of its operands
+			int[] round = new int[n];
+			int[] roundSizes = new int[n];
+			int numRounds = 0;
+			for(int i = 0; i < n; i++) {
+				Expression e = nodes.get(i);
+				left[i] = operand(e.left, index, known, knownLeft, i);
+				right[i] = operand(e.right, index, known, knownRight, i);
+				round[i] = 1 + Math.max(left[i] < 0 ? -1 : round[left[i]], right[i] < 0 ? -1 : round[right[i]]);
+				roundSizes[round[i]]++;
+				numRounds = Math.max(numRounds, round[i] + 1);
+			}
+			for(int r = 0; r < numRounds; r++) {
+				rounds.add(new int[roundSizes[r]]);
+			}
+			int[] filled = new int[numRounds];
+			for(int i = 0; i < n; i++) {
+				rounds.get(round[i])[filled[round[i]]++] = i;
+			}
+		}
+
+		private int operand(Expression operand, IdentityHashMap<Expression, Integer> index,
+				IdentityHashMap<Expression, BigInteger> known, BigInteger[] knownValues, int node) {
+			if(operand == null) {
+				return -1;
+			}
+			BigInteger value = known.get(operand);
+			if(value != null) {
+				knownValues[node] = value;
+				return -1;
+			}
+			return index.get(operand);
+		}
+
+		/**
+		 * Computes one node, whose operands are already computed, and caches it.
+		 */
+		void compute(int node) {
+			BigInteger a = left[node] < 0 ? knownLeft[node] : values[left[node]];
+			BigInteger b = right[node] < 0 ? knownRight[node] : values[right[node]];
+			Expression e = nodes.get(node);
+			BigInteger value = e.operator.apply(a, b);
+			values[node] = value;
+			cache.put(e, value);
+		}
+	}
+
+	/**
+	 * Runs the rounds of a plan one after the other, each as parallel tasks.
+	 */
+	private static final class RoundsTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		final Plan plan;
+
+		RoundsTask(Plan plan) {
+			this.plan = plan;
+		}
+
+		protected void compute() {
+			for(int[] round : plan.rounds) {
+				if(round.length == 1) {
+					plan.compute(round[0]);
+				} else {
+					new RoundTask(plan, round, 0, round.length).invoke();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Computes the nodes round[from] through round[to - 1], splitting the
+	 * range in halves down to single nodes.
+	 */
+	private static final class RoundTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		final Plan plan;
+		final int[] round;
+		final int from, to;
+
+		RoundTask(Plan plan, int[] round, int from, int to) {
+			this.plan = plan;
+			this.round = round;
+			this.from = from;
+			this.to = to;
+		}
+
+		protected void compute() {
+			if(to - from == 1) {
+				plan.compute(round[from]);
+				return;
+			}
+			int mid = (from + to) >>> 1;
+			invokeAll(new RoundTask(plan, round, from, mid), new RoundTask(plan, round, mid, to));
+		}
+	}
+}
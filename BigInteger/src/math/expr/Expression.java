@@ -0,0 +1,112 @@
+package math.expr;
+
+import java.util.ArrayDeque;
+
+import math.BigInteger;
+
+/**
+ * A node of an expression DAG: either a constant, or an operator applied to
+ * one or two operand nodes. Expressions are immutable and are only created
+ * through an ExpressionFactory, which hands out the same node for the same
+ * operator and operands. An expression that appears many times in a script
+ * is therefore one node, and only has to be evaluated once.
+ *
+ */
+public final class Expression {
+
+	final Operator operator;
+
+	/**
+	 * Value of a CONSTANT node, null otherwise
+	 */
+	final BigInteger value;
+
+	/**
+	 * Operands, null where the operator has fewer
+	 */
+	final Expression left, right;
+
+	/**
+	 * Creation order within the factory, which gives the operands of
+	 * commutative operators a fixed order
+	 */
+	final int id;
+
+	Expression(int id, Operator operator, BigInteger value, Expression left, Expression right) {
+		this.id = id;
+		this.operator = operator;
+		this.value = value;
+		this.left = left;
+		this.right = right;
+	}
+
+	/**
+	 * Returns the operator of this node.
+	 *
+	 * @return Operator, CONSTANT for a literal
+	 */
+	public Operator getOperator() {
+		return operator;
+	}
+
+	/**
+	 * Returns the value of a constant node.
+	 *
+	 * @return Value of the literal, null if this is not a constant
+	 */
+	public BigInteger getValue() {
+		return value;
+	}
+
+	/**
+	 * Returns the first operand.
+	 *
+	 * @return First operand, null for a constant
+	 */
+	public Expression getLeft() {
+		return left;
+	}
+
+	/**
+	 * Returns the second operand.
+	 *
+	 * @return Second operand, null for a constant or unary operator
+	 */
+	public Expression getRight() {
+		return right;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	public String toString() {
+		//Shared nodes are written out every time they are used, so this
+		//walks the expression as a tree, with an explicit stack since it
+		//can be much deeper than the call stack allows
+		StringBuilder sb = new StringBuilder();
+		ArrayDeque<Object> stack = new ArrayDeque<>();
+		stack.push(this);
+		while(!stack.isEmpty()) {
+			Object top = stack.pop();
+			if(top instanceof String) {
+				sb.append((String)top);
+				continue;
+			}
+			Expression e = (Expression)top;
+			if(e.operator == Operator.CONSTANT) {
+				sb.append(e.value);
+			} else if(e.operator.arity == 1) {
+				stack.push(")");
+				stack.push(e.left);
+				stack.push("(" + e.operator.symbol);
+			} else {
+				stack.push(")");
+				stack.push(e.right);
+				stack.push(" " + e.operator.symbol + " ");
+				stack.push(e.left);
+				stack.push("(");
+			}
+		}
+		return sb.toString();
+	}
+}
@@ -0,0 +1,181 @@
+package math.expr;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import math.BigInteger;
+
+/**
+ * Creates expression nodes, and makes sure each distinct node exists only
+ * once ("hash consing"). Asking twice for the same constant, or the same
+ * operator over the same operands, returns the same Expression object, so
+ * the expressions built here form a DAG in which every common
+ * subexpression is shared. Operands of commutative operators are put in a
+ * fixed order first, so a * b and b * a are one node as well.
+ *
+ * Nodes are interned weakly: the factory only finds a node again while
+ * something else still holds it (a name, a cached value, a larger
+ * expression). Once nothing does, it is garbage collected and its entry is
+ * dropped, so a long-lived factory only holds on to the nodes in use, not
+ * every node it ever made.
+ *
+ * A factory can be used from several threads at once.
+ *
+ */
+public final class ExpressionFactory {
+
+	private final ConcurrentHashMap<Key, NodeRef> nodes = new ConcurrentHashMap<>();
+	private final ReferenceQueue<Expression> collected = new ReferenceQueue<>();
+	private final AtomicInteger nextId = new AtomicInteger();
+
+	/**
+	 * Returns the node for a constant.
+	 *
+	 * @param value Value of the constant
+	 * @return Node for the constant
+	 * @throws IllegalArgumentException If value is null
+	 */
+	public Expression constant(BigInteger value)
+	throws IllegalArgumentException {
+		if(value == null) {
+			throw new IllegalArgumentException("Constant must not be null.");
+		}
+		return intern(Operator.CONSTANT, value, null, null);
+	}
+
+	/**
+	 * Returns the node for a unary operator applied to an operand.
+	 * Negating a constant gives the negated constant.
+	 *
+	 * @param operator Unary operator
+	 * @param operand Operand, created by this factory
+	 * @return Node for the operation
+	 * @throws IllegalArgumentException If the operator is not unary or the
+	 *         operand is null
+	 */
+	public Expression unary(Operator operator, Expression operand)
+	throws IllegalArgumentException {
+		if(operator == null || operator.arity != 1 || operand == null) {
+			throw new IllegalArgumentException("Expected a unary operator and one operand.");
+		}
+		if(operand.operator == Operator.CONSTANT) {
+			return constant(operand.value.negate());
+		}
+		return intern(operator, null, operand, null);
+	}
+
+	/**
+	 * Returns the node for a binary operator applied to two operands.
+	 *
+	 * @param operator Binary operator
+	 * @param left First operand, created by this factory
+	 * @param right Second operand, created by this factory
+	 * @return Node for the operation
+	 * @throws IllegalArgumentException If the operator is not binary or an
+	 *         operand is null
+	 */
+	public Expression binary(Operator operator, Expression left, Expression right)
+	throws IllegalArgumentException {
+		if(operator == null || operator.arity != 2 || left == null || right == null) {
+			throw new IllegalArgumentException("Expected a binary operator and two operands.");
+		}
+		if(operator.isCommutative() && left.id > right.id) {
+			Expression tmp = left;
+			left = right;
+			right = tmp;
+		}
+		return intern(operator, null, left, right);
+	}
+
+	/**
+	 * Returns the number of distinct nodes interned, leaving out those that
+	 * have already been garbage collected.
+	 *
+	 * @return Node count
+	 */
+	public int size() {
+		expunge();
+		return nodes.size();
+	}
+
+	private Expression intern(Operator operator, BigInteger value, Expression left, Expression right) {
+		expunge();
+		//Operands are already unique, so they are compared by id
+		Key key = new Key(operator, value, left, right);
+		while(true) {
+			NodeRef ref = nodes.get(key);
+			Expression node = ref == null ? null : ref.get();
+			if(node != null) {
+				return node;
+			}
+			//Absent, or collected but not yet expunged: put in a new node,
+			//unless another thread gets there first
+			Expression created = new Expression(nextId.getAndIncrement(), operator, value, left, right);
+			NodeRef createdRef = new NodeRef(key, created, collected);
+			if(ref == null ? nodes.putIfAbsent(key, createdRef) == null : nodes.replace(key, ref, createdRef)) {
+				return created;
+			}
+		}
+	}
+
+	/**
+	 * Drops the entries of nodes that have been garbage collected.
+	 */
+	private void expunge() {
+		for(Object ref; (ref = collected.poll()) != null; ) {
+			nodes.remove(((NodeRef)ref).key, ref);
+		}
+	}
+
+	/**
+	 * Weak reference to an interned node, which remembers its key so the
+	 * entry can be found once the node is gone
+	 */
+	private static final class NodeRef extends WeakReference<Expression> {
+		final Key key;
+
+		NodeRef(Key key, Expression node, ReferenceQueue<Expression> queue) {
+			super(node, queue);
+			this.key = key;
+		}
+	}
+
+	/**
+	 * Identity of a node: its operator, constant value and operand nodes.
+	 * Operands are held by id, which no other node of the factory ever
+	 * gets, so that a key does not keep its operands from being collected.
+	 */
+	private static final class Key {
+		final Operator operator;
+		final BigInteger value;
+		final int left, right;
+		final int hash;
+
+		Key(Operator operator, BigInteger value, Expression left, Expression right) {
+			this.operator = operator;
+			this.value = value;
+			this.left = left == null ? -1 : left.id;
+			this.right = right == null ? -1 : right.id;
+			int h = operator.hashCode();
+			h = 31 * h + (value == null ? 0 : value.hashCode());
+			h = 31 * h + this.left;
+			h = 31 * h + this.right;
+			this.hash = h;
+		}
+
+		public boolean equals(Object obj) {
+			if(!(obj instanceof Key)) {
+				return false;
+			}
+			Key other = (Key)obj;
+			return operator == other.operator && left == other.left && right == other.right
+					&& (value == null ? other.value == null : value.equals(other.value));
+		}
+
+		public int hashCode() {
+			return hash;
+		}
+	}
+}
@@ -0,0 +1,243 @@
+package math.expr;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import math.BigInteger;
+
+/**
+ * Parses arithmetic scripts into expression DAGs. A script is a sequence of
+ * statements separated by semicolons or line breaks, each either an
+ * expression or an assignment of one to a name:
+ *
+ *    a = 123456789 * 987654321
+ *    b = (a + 1) * (a + 1)
+ *    b % a - -a
+ *
+ * Expressions use integers, names assigned earlier in the script, the
+ * binary operators + - * / % with the usual precedence (all left
+ * associative), unary minus and plus, and parentheses. The script's value
+ * is the last statement's expression. All nodes come from one factory, so
+ * subexpressions repeated anywhere in the script, or in earlier scripts
+ * parsed with the same factory, are shared.
+ *
+ */
+public final class ExpressionParser {
+
+	/**
+	 * Deepest nesting of parentheses and unary signs the parser accepts; it
+	 * descends recursively, and would run out of stack well past this
+	 */
+	static final int MAX_DEPTH = 1000;
+
+	private final ExpressionFactory factory;
+
+	/**
+	 * Names assigned so far, which stay defined for later scripts
+	 */
+	private final Map<String, Expression> names = new HashMap<>();
+
+	private String text;
+	private int pos;
+
+	/**
+	 * Nesting of the unary() calls in progress
+	 */
+	private int depth;
+
+	/**
+	 * Initializes a parser that builds its nodes with a new factory.
+	 */
+	public ExpressionParser() {
+		this(new ExpressionFactory());
+	}
+
+	/**
+	 * Initializes a parser that builds its nodes with the given factory.
+	 *
+	 * @param factory Factory to create and share nodes with
+	 */
+	public ExpressionParser(ExpressionFactory factory) {
+		this.factory = factory;
+	}
+
+	/**
+	 * Returns the factory this parser builds its nodes with.
+	 *
+	 * @return Node factory
+	 */
+	public ExpressionFactory getFactory() {
+		return factory;
+	}
+
+	/**
+	 * Parses a script.
+	 *
+	 * @param script Script text
+	 * @return Expression of the last statement
+	 * @throws IllegalArgumentException If the script is incorrectly formatted,
+	 *         uses a name before it is assigned, or nests parentheses and
+	 *         unary signs more than MAX_DEPTH deep
+	 */
+	public Expression parse(String script)
+	throws IllegalArgumentException {
+		if(script == null) {
+			throw new IllegalArgumentException("Please input a valid expression.");
+		}
+		text = script;
+		pos = 0;
+		depth = 0;
+		Expression last = null;
+		while(true) {
+			skipSpace();
+			if(pos == text.length()) {
+				break;
+			}
+			if(isSeparator(text.charAt(pos))) {
+				pos++;
+				continue;
+			}
+			last = statement();
+			skipSpace();
+			if(pos < text.length() && !isSeparator(text.charAt(pos))) {
+				throw error("Unexpected '" + text.charAt(pos) + "'");
+			}
+		}
+		if(last == null) {
+			throw new IllegalArgumentException("Please input a valid expression.");
+		}
+		return last;
+	}
+
+	private Expression statement() {
+		//A name followed by a single '=' is an assignment
+		int start = pos;
+		if(Character.isLetter(text.charAt(pos))) {
+			String name = name();
+			skipSpace();
+			if(pos < text.length() && text.charAt(pos) == '=') {
+				pos++;
+				Expression value = sum();
+				names.put(name, value);
+				return value;
+			}
+			pos = start;
+		}
+		return sum();
+	}
+
+	private Expression sum() {
+		Expression result = product();
+		while(true) {
+			skipSpace();
+			char c = peek();
+			if(c == '+' || c == '-') {
+				pos++;
+				result = factory.binary(c == '+' ? Operator.ADD : Operator.SUBTRACT, result, product());
+			} else {
+				return result;
+			}
+		}
+	}
+
+	private Expression product() {
+		Expression result = unary();
+		while(true) {
+			skipSpace();
+			char c = peek();
+			Operator op = c == '*' ? Operator.MULTIPLY
+					: c == '/' ? Operator.DIVIDE
+					: c == '%' ? Operator.REMAINDER : null;
+			if(op == null) {
+				return result;
+			}
+			pos++;
+			result = factory.binary(op, result, unary());
+		}
+	}
+
+	private Expression unary() {
+		//Every parenthesis and unary sign leads here one level further down;
+		//the outermost call is level 0
+		if(depth++ > MAX_DEPTH) {
+			throw error("Expression nested more than " + MAX_DEPTH + " deep");
+		}
+		skipSpace();
+		char c = peek();
+		Expression result;
+		if(c == '-') {
+			pos++;
+			result = factory.unary(Operator.NEGATE, unary());
+		} else if(c == '+') {
+			pos++;
+			result = unary();
+		} else {
+			result = primary();
+		}
+		depth--;
+		return result;
+	}
+
+	private Expression primary() {
+		skipSpace();
+		char c = peek();
+		if(c == '(') {
+			pos++;
+			Expression inner = sum();
+			skipSpace();
+			if(peek() != ')') {
+				throw error("Expected ')'");
+			}
+			pos++;
+			return inner;
+		}
+		if(Character.digit(c, 10) >= 0) {
+			int start = pos;
+			while(pos < text.length() && Character.digit(text.charAt(pos), 10) >= 0) {
+				pos++;
+			}
+			return factory.constant(BigInteger.parse(text.substring(start, pos)));
+		}
+		if(Character.isLetter(c)) {
+			int start = pos;
+			String name = name();
+			Expression value = names.get(name);
+			if(value == null) {
+				pos = start;
+				throw error("Unknown name '" + name + "'");
+			}
+			return value;
+		}
+		throw error(pos == text.length() ? "Unexpected end of expression" : "Unexpected '" + c + "'");
+	}
+
+	private String name() {
+		int start = pos;
+		while(pos < text.length()
+				&& (Character.isLetterOrDigit(text.charAt(pos)) || text.charAt(pos) == '_')) {
+			pos++;
+		}
+		return text.substring(start, pos);
+	}
+
+	/**
+	 * Skips spaces, but not line breaks, which end a statement
+	 */
+	private void skipSpace() {
+		while(pos < text.length() && text.charAt(pos) <= ' ' && !isSeparator(text.charAt(pos))) {
+			pos++;
+		}
+	}
+
+	private char peek() {
+		return pos < text.length() ? text.charAt(pos) : '\0';
+	}
+
+	private static boolean isSeparator(char c) {
+		return c == ';' || c == '\n';
+	}
+
+	private IllegalArgumentException error(String message) {
+		return new IllegalArgumentException(message + " at position " + pos + ".");
+	}
+}
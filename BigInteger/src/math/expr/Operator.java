@@ -0,0 +1,81 @@
+package math.expr;
+
+import math.BigInteger;
+
+/**
+ * The kinds of node in an expression DAG, with the arithmetic each one
+ * performs on the values of its operands.
+ *
+ */
+public enum Operator {
+
+	/**
+	 * A literal integer, with no operands
+	 */
+	CONSTANT(null, 0),
+
+	/**
+	 * Unary minus
+	 */
+	NEGATE("-", 1),
+
+	ADD("+", 2),
+	SUBTRACT("-", 2),
+	MULTIPLY("*", 2),
+
+	/**
+	 * Division truncated toward zero
+	 */
+	DIVIDE("/", 2),
+
+	/**
+	 * Remainder with the sign of the dividend
+	 */
+	REMAINDER("%", 2);
+
+	/**
+	 * Symbol the operator is written with
+	 */
+	final String symbol;
+
+	/**
+	 * Number of operands
+	 */
+	final int arity;
+
+	Operator(String symbol, int arity) {
+		this.symbol = symbol;
+		this.arity = arity;
+	}
+
+	/**
+	 * Checks whether the operands can be swapped without changing the value,
+	 * so that a * b and b * a can be stored as the same node.
+	 *
+	 * @return True for addition and multiplication
+	 */
+	public boolean isCommutative() {
+		return this == ADD || this == MULTIPLY;
+	}
+
+	/**
+	 * Applies the operator to the values of its operands.
+	 *
+	 * @param left Value of the first operand
+	 * @param right Value of the second operand, ignored by unary operators
+	 * @return Value of the operation
+	 * @throws ArithmeticException If a division by zero is attempted
+	 */
+	BigInteger apply(BigInteger left, BigInteger right)
+	throws ArithmeticException {
+		switch(this) {
+			case NEGATE: return left.negate();
+			case ADD: return left.add(right);
+			case SUBTRACT: return left.subtract(right);
+			case MULTIPLY: return left.multiply(right);
+			case DIVIDE: return left.divide(right);
+			case REMAINDER: return left.remainder(right);
+			default: throw new IllegalStateException("A constant has no operands.");
+		}
+	}
+}
@@ -0,0 +1,70 @@
+package math.expr;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import math.BigInteger;
+
+/**
+ * Bounded cache of evaluated expression values. When it is full, the value
+ * that was used least recently is dropped. Nodes are unique within their
+ * factory, so they are looked up by identity.
+ *
+ */
+final class ResultCache {
+
+	private final LinkedHashMap<Expression, BigInteger> values;
+
+	/**
+	 * Initializes an empty cache.
+	 *
+	 * @param capacity Largest number of values kept, 0 to keep none
+	 */
+	ResultCache(final int capacity) {
+		//An access-ordered LinkedHashMap keeps its least recently used entry
+		//first, which is the one to evict
+		values = new LinkedHashMap<Expression, BigInteger>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			protected boolean removeEldestEntry(Map.Entry<Expression, BigInteger> eldest) {
+				return size() > capacity;
+			}
+		};
+	}
+
+	/**
+	 * Looks up the value of an expression.
+	 *
+	 * @param e Expression
+	 * @return Its cached value, or null if it is not cached
+	 */
+	synchronized BigInteger get(Expression e) {
+		return values.get(e);
+	}
+
+	/**
+	 * Stores the value of an expression.
+	 *
+	 * @param e Expression
+	 * @param value Its value
+	 */
+	synchronized void put(Expression e, BigInteger value) {
+		values.put(e, value);
+	}
+
+	/**
+	 * Returns the number of values currently cached.
+	 *
+	 * @return Entry count
+	 */
+	synchronized int size() {
+		return values.size();
+	}
+
+	/**
+	 * Drops every cached value.
+	 */
+	synchronized void clear() {
+		values.clear();
+	}
+}
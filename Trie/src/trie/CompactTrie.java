@@ -0,0 +1,748 @@
+package trie;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * This class implements a frozen compressed trie, laid out in flat arrays
+ * instead of a graph of TrieNode and Indexes objects.
+ *
+ * Nodes are numbered in breadth-first order, with the root at 0, so the
+ * children of every node are consecutive: the children of node i are the
+ * nodes childStart[i] up to (not including) childStart[i+1]. The substring
+ * held at node i is the same triplet as in Indexes, split over three arrays:
+ * characters labelStart[i] through labelEnd[i] of allWords[labelWord[i]].
+ *
+ * A node where a word ends records that word in word[i]. In a trie built by
+ * Trie.buildTrie these are exactly the leaves, but the sorted-array builder
+ * also accepts words that are prefixes of other words, which then end at
+ * inner nodes.
+ *
+ * The children of every node are sorted by the first character of their
+ * substrings, so finding the child that continues a prefix is a binary
+ * search, and looking up a prefix takes one descent of O(prefix length)
+ * steps no matter how wide the trie is.
+ *
+ * A trie built with scores also keeps, for every node, the highest score
+ * in its subtree, which lets topKCompletions find the best completions
+ * without visiting all of them.
+ *
+ */
+public class CompactTrie {
+
+	/**
+	 * Returned when no word matches
+	 */
+	private static final int[] NO_MATCHES = new int[0];
+
+	/**
+	 * Words the substrings point into
+	 */
+	private final String[] allWords;
+
+	/**
+	 * Index of the word that holds the substring of each node
+	 */
+	private final int[] labelWord;
+
+	/**
+	 * Start index of the substring of each node
+	 */
+	private final int[] labelStart;
+
+	/**
+	 * End index (inclusive) of the substring of each node
+	 */
+	private final int[] labelEnd;
+
+	/**
+	 * First child of each node, with one extra entry so that the children of
+	 * node i always end at childStart[i+1]
+	 */
+	private final int[] childStart;
+
+	/**
+	 * Index of the word that ends at each node, or -1
+	 */
+	private final int[] word;
+
+	/**
+	 * Score of each word, by word index, or null if the trie is unweighted
+	 */
+	private final long[] scores;
+
+	/**
+	 * Highest score of any word in the subtree of each node, or null if the
+	 * trie is unweighted
+	 */
+	private final long[] maxScore;
+
+	private CompactTrie(String[] allWords, int[] labelWord, int[] labelStart, int[] labelEnd,
+			int[] childStart, int[] word, long[] scores) {
+		this.allWords = allWords;
+		this.labelWord = labelWord;
+		this.labelStart = labelStart;
+		this.labelEnd = labelEnd;
+		this.childStart = childStart;
+		this.word = word;
+		this.scores = scores;
+		if(scores == null) {
+			maxScore = null;
+			return;
+		}
+
+		//Children are numbered after their parents, so going backwards every
+		//subtree is complete before its root is reached
+		maxScore = new long[word.length];
+		for(int node = word.length - 1; node >= 0; node--) {
+			long max = word[node] == -1 ? Long.MIN_VALUE : scores[word[node]];
+			for(int child = childStart[node]; child < childStart[node+1]; child++) {
+				max = Math.max(max, maxScore[child]);
+			}
+			maxScore[node] = max;
+		}
+	}
+
+	/**
+	 * Freezes a trie built by Trie.buildTrie. The children of each node are
+	 * sorted by first character, whatever their order in the sibling list.
+	 *
+	 * @param root Root of the trie, may be null for an empty trie
+	 * @param allWords Array of words that have been inserted into the trie
+	 * @return Compact copy of the trie
+	 */
+	public static CompactTrie build(TrieNode root, String[] allWords) {
+		return build(root, allWords, null);
+	}
+
+	/**
+	 * Freezes a trie built by Trie.buildTrie, with a score for every word
+	 * for topKCompletions.
+	 *
+	 * @param root Root of the trie, may be null for an empty trie
+	 * @param allWords Array of words that have been inserted into the trie
+	 * @param scores Score of each word, such as its frequency, in the same
+	 *        order as allWords; null for an unweighted trie
+	 * @return Compact copy of the trie
+	 * @throws IllegalArgumentException If there is not one score per word
+	 */
+	public static CompactTrie build(TrieNode root, String[] allWords, long[] scores)
+	throws IllegalArgumentException {
+		checkScores(allWords, scores);
+		//Count the nodes first so every array is allocated exactly once
+		int count = 1;
+		ArrayDeque<TrieNode> queue = new ArrayDeque<>();
+		queue.add(root == null ? new TrieNode(null, null, null) : root);
+		while(!queue.isEmpty()) {
+			for(TrieNode ptr = queue.poll().firstChild; ptr != null; ptr = ptr.sibling) {
+				count++;
+				queue.add(ptr);
+			}
+		}
+
+		//Breadth first: source remembers the TrieNode behind every node
+		//number, and each node is expanded into its children when the loop
+		//reaches it
+		Builder builder = new Builder(count);
+		TrieNode[] source = new TrieNode[count];
+		ArrayList<TrieNode> siblings = new ArrayList<>();
+		source[builder.add(-1, 0, -1)] = root;
+		for(int node = 0; node < builder.size; node++) {
+			builder.childStart[node] = builder.size;
+			if(source[node] == null) {
+				continue;
+			}
+			siblings.clear();
+			for(TrieNode ptr = source[node].firstChild; ptr != null; ptr = ptr.sibling) {
+				siblings.add(ptr);
+			}
+			siblings.sort((x, y) -> Character.compare(
+					allWords[x.substr.wordIndex].charAt(x.substr.startIndex),
+					allWords[y.substr.wordIndex].charAt(y.substr.startIndex)));
+			for(TrieNode ptr : siblings) {
+				int child = builder.add(ptr.substr.wordIndex, ptr.substr.startIndex, ptr.substr.endIndex);
+				if(ptr.firstChild == null) {
+					builder.word[child] = ptr.substr.wordIndex;
+				}
+				source[child] = ptr;
+			}
+		}
+		return builder.finish(allWords, scores);
+	}
+
+	/**
+	 * Builds a compact trie straight from a sorted array of words, without
+	 * building the TrieNode tree first. Words may be prefixes of other words;
+	 * a word that appears more than once is recorded at its first index.
+	 *
+	 * @param allWords Words in ascending order (as by Arrays.sort)
+	 * @return Compact trie of the words
+	 * @throws IllegalArgumentException If the words are not sorted
+	 */
+	public static CompactTrie build(String[] allWords)
+	throws IllegalArgumentException {
+		return build(allWords, null);
+	}
+
+	/**
+	 * Builds a compact trie straight from a sorted array of words, with a
+	 * score for every word for topKCompletions. A word that appears more than
+	 * once gets the score of its first copy.
+	 *
+	 * @param allWords Words in ascending order (as by Arrays.sort)
+	 * @param scores Score of each word, such as its frequency, in the same
+	 *        order as allWords; null for an unweighted trie
+	 * @return Compact trie of the words
+	 * @throws IllegalArgumentException If the words are not sorted, or there
+	 *         is not one score per word
+	 */
+	public static CompactTrie build(String[] allWords, long[] scores)
+	throws IllegalArgumentException {
+		checkScores(allWords, scores);
+		for(int i = 1; i < allWords.length; i++) {
+			if(allWords[i-1].compareTo(allWords[i]) > 0) {
+				throw new IllegalArgumentException("Words must be sorted.");
+			}
+		}
+
+		//Every node covers a range of the sorted words: those that run through
+		//it. Nodes are appended in breadth-first order, and each is expanded
+		//into its children when the loop reaches it.
+		Builder builder = new Builder(16);
+		int[] rangeEnd = new int[16];
+		builder.add(-1, 0, -1);
+		rangeEnd[0] = allWords.length;
+		for(int node = 0; node < builder.size; node++) {
+			int lo = node == 0 ? 0 : builder.labelWord[node];
+			int hi = rangeEnd[node];
+			int depth = builder.labelEnd[node] + 1;
+
+			//The first word of the range ends here if it is no longer than
+			//the substring so far, and so does every copy of it
+			int from = lo;
+			if(lo < hi && allWords[lo].length() == depth) {
+				builder.word[node] = lo;
+				while(from < hi && allWords[from].length() == depth) {
+					from++;
+				}
+			}
+
+			//Words that agree at this depth go to the same child, whose
+			//substring runs up to where its first and last words part
+			builder.childStart[node] = builder.size;
+			while(from < hi) {
+				char c = allWords[from].charAt(depth);
+				int to = from + 1;
+				while(to < hi && allWords[to].charAt(depth) == c) {
+					to++;
+				}
+				String first = allWords[from], last = allWords[to-1];
+				int end = depth;
+				while(end + 1 < first.length() && end + 1 < last.length()
+						&& first.charAt(end + 1) == last.charAt(end + 1)) {
+					end++;
+				}
+				int child = builder.add(from, depth, end);
+				if(child >= rangeEnd.length) {
+					rangeEnd = Arrays.copyOf(rangeEnd, rangeEnd.length * 2);
+				}
+				rangeEnd[child] = to;
+				from = to;
+			}
+		}
+		return builder.finish(allWords, scores);
+	}
+
+	/**
+	 * Returns the "completion list" for a prefix, i.e. the indexes of all
+	 * words in the trie that start with this prefix. This is the same list
+	 * as Trie.completionList, but as word indexes instead of leaf nodes.
+	 *
+	 * @param prefix Prefix to be completed with words in trie
+	 * @return Indexes into allWords of the words that start with the prefix,
+	 *         in trie order; empty if there are none
+	 */
+	public int[] completionList(String prefix) {
+		int node = find(prefix);
+		if(node == -1) {
+			return NO_MATCHES;
+		}
+
+		//Walk the subtree with an explicit stack; it is not contiguous in
+		//breadth-first order
+		int[] matches = new int[16];
+		int count = 0;
+		int[] stack = new int[16];
+		int top = 0;
+		stack[top++] = node;
+		while(top > 0) {
+			int ptr = stack[--top];
+			if(word[ptr] != -1) {
+				if(count == matches.length) {
+					matches = Arrays.copyOf(matches, count * 2);
+				}
+				matches[count++] = word[ptr];
+			}
+			int first = childStart[ptr], last = childStart[ptr+1];
+			if(top + last - first > stack.length) {
+				stack = Arrays.copyOf(stack, Math.max(stack.length * 2, top + last - first));
+			}
+			//Pushed in reverse so the children come off in order
+			for(int child = last - 1; child >= first; child--) {
+				stack[top++] = child;
+			}
+		}
+		return Arrays.copyOf(matches, count);
+	}
+
+	/**
+	 * Returns the k highest scoring words that start with a prefix, best
+	 * first; words with equal scores come in no particular order.
+	 *
+	 * The search is best first: candidates wait in a priority queue, ordered
+	 * by the highest score in their subtree, and a word is only taken off
+	 * the queue once nothing left in it can beat the word. Subtrees that
+	 * cannot make the top k are never opened, so a short prefix over a large
+	 * dictionary touches only a small part of the trie.
+	 *
+	 * @param prefix Prefix to be completed with words in trie
+	 * @param k Largest number of words to return
+	 * @return Indexes into allWords of up to k words that start with the
+	 *         prefix, highest score first
+	 * @throws IllegalArgumentException If k is negative
+	 * @throws IllegalStateException If the trie was built without scores
+	 */
+	public int[] topKCompletions(String prefix, int k)
+	throws IllegalArgumentException, IllegalStateException {
+		if(k < 0) {
+			throw new IllegalArgumentException("k must not be negative.");
+		}
+		if(scores == null) {
+			throw new IllegalStateException("Trie was built without scores.");
+		}
+		int node = find(prefix);
+		if(node == -1 || k == 0) {
+			return NO_MATCHES;
+		}
+
+		int[] best = new int[Math.min(k, 16)];
+		int count = 0;
+		PriorityQueue<Candidate> queue = new PriorityQueue<>();
+		queue.add(new Candidate(maxScore[node], node, false));
+		while(count < k && !queue.isEmpty()) {
+			Candidate top = queue.poll();
+			if(top.isWord) {
+				//Nothing still queued scores higher, so this word is next
+				if(count == best.length) {
+					best = Arrays.copyOf(best, Math.min(k, count * 2));
+				}
+				best[count++] = word[top.node];
+				continue;
+			}
+			//Open the subtree: its own word, if any, competes on its score,
+			//and each child on the best score below it
+			if(word[top.node] != -1) {
+				queue.add(new Candidate(scores[word[top.node]], top.node, true));
+			}
+			for(int child = childStart[top.node]; child < childStart[top.node+1]; child++) {
+				queue.add(new Candidate(maxScore[child], child, false));
+			}
+		}
+		return Arrays.copyOf(best, count);
+	}
+
+	/**
+	 * Returns the words that start with a prefix one at a time, without
+	 * collecting them first: each call to next does only the work to reach
+	 * the following word, so a caller that stops after ten words pays for
+	 * ten words. The words come in alphabetical order, since the children of
+	 * every node are sorted and a word comes before the longer words below it.
+	 *
+	 * @param prefix Prefix to be completed with words in trie
+	 * @return Iterator over the words that start with the prefix
+	 */
+	public Iterator<String> completions(String prefix) {
+		return completions(prefix, null);
+	}
+
+	/**
+	 * Returns the words that start with a prefix as a lazy, ordered stream,
+	 * like completions.
+	 *
+	 * @param prefix Prefix to be completed with words in trie
+	 * @return Stream of the words that start with the prefix
+	 */
+	public Stream<String> completionStream(String prefix) {
+		return StreamSupport.stream(Spliterators.spliteratorUnknownSize(completions(prefix),
+				Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL), false);
+	}
+
+	/**
+	 * Returns one page of the words that start with a prefix. The page ends
+	 * with a cursor to pass back for the next page; resuming from it costs one
+	 * descent along the cursor, so every page takes time in proportion to its
+	 * size, however far into the list it is.
+	 *
+	 * @param prefix Prefix to be completed with words in trie
+	 * @param cursor Cursor from the previous page, or null for the first page
+	 * @param size Largest number of words on the page
+	 * @return The page
+	 * @throws IllegalArgumentException If size is not positive, or the cursor
+	 *         does not belong to this prefix
+	 */
+	public Page page(String prefix, String cursor, int size)
+	throws IllegalArgumentException {
+		if(size < 1) {
+			throw new IllegalArgumentException("Page size must be positive.");
+		}
+		Iterator<String> completions = completions(prefix, cursor);
+		ArrayList<String> words = new ArrayList<>(Math.min(size, 64));
+		while(words.size() < size && completions.hasNext()) {
+			words.add(completions.next());
+		}
+		//The cursor is the last word shown: the next page starts after it
+		String next = completions.hasNext() ? words.get(words.size() - 1) : null;
+		return new Page(words, next);
+	}
+
+	/**
+	 * Returns the words that start with a prefix and come after a given word.
+	 */
+	private Iterator<String> completions(String prefix, String after)
+	throws IllegalArgumentException {
+		if(after != null && !after.startsWith(prefix)) {
+			throw new IllegalArgumentException("Cursor does not belong to this prefix.");
+		}
+		CompletionIterator iterator = new CompletionIterator();
+		int node = find(prefix);
+		if(node == -1) {
+			return iterator;
+		}
+		if(after == null) {
+			iterator.push(node);
+		} else {
+			seek(iterator, node, after);
+		}
+		return iterator;
+	}
+
+	/**
+	 * Sets up an iterator to visit, in order, the words below a node that come
+	 * after a given word, which agrees with the path down to where the node's
+	 * substring starts. Subtrees that come entirely after the word are pushed
+	 * whole; only the one child that the word runs through is opened up.
+	 */
+	private void seek(CompletionIterator iterator, int node, String after) {
+		//Substring positions are also positions in the words
+		String label = node == 0 ? "" : allWords[labelWord[node]];
+		for(int i = labelStart[node]; i <= labelEnd[node]; i++) {
+			if(i == after.length()) { //Every word here is longer than after
+				iterator.push(node);
+				return;
+			}
+			if(label.charAt(i) != after.charAt(i)) {
+				if(label.charAt(i) > after.charAt(i)) {
+					iterator.push(node);
+				}
+				return;
+			}
+		}
+
+		//The word at this node, if any, is a prefix of after, or after itself
+		int depth = labelEnd[node] + 1;
+		int first = childStart[node], last = childStart[node+1];
+		if(depth == after.length()) {
+			for(int child = last - 1; child >= first; child--) {
+				iterator.push(child);
+			}
+			return;
+		}
+		//Later children go on the stack first, so they come off last
+		char c = after.charAt(depth);
+		int child = last - 1;
+		for(; child >= first && allWords[labelWord[child]].charAt(labelStart[child]) > c; child--) {
+			iterator.push(child);
+		}
+		if(child >= first && allWords[labelWord[child]].charAt(labelStart[child]) == c) {
+			seek(iterator, child, after);
+		}
+	}
+
+	/**
+	 * Writes this trie as an image file that MappedTrie can open. The image
+	 * holds the words themselves, so the array of words is not needed to
+	 * query it; scores are not included. See MappedTrie for the layout.
+	 *
+	 * @param file File to write, replaced if it exists
+	 * @throws IOException If the file cannot be written, or the image would
+	 *         be larger than 2 GB
+	 */
+	public void write(Path file)
+	throws IOException {
+		//Offsets of the words in the block of characters
+		int[] wordStart = new int[allWords.length + 1];
+		long charCount = 0;
+		for(int i = 0; i < allWords.length; i++) {
+			wordStart[i] = (int)charCount;
+			charCount += allWords[i].length();
+		}
+		int n = word.length;
+		long size = MappedTrie.HEADER_SIZE + 4L * (4L * n + 1 + allWords.length + 1) + 2L * charCount;
+		if(size > Integer.MAX_VALUE) {
+			throw new IOException("Trie image would be larger than 2 GB.");
+		}
+		wordStart[allWords.length] = (int)charCount;
+
+		try(DataOutputStream out = new DataOutputStream(
+				new BufferedOutputStream(Files.newOutputStream(file)))) {
+			out.writeInt(MappedTrie.MAGIC);
+			out.writeInt(MappedTrie.VERSION);
+			out.writeInt(n);
+			out.writeInt(allWords.length);
+			out.writeInt((int)charCount);
+			//The root has no substring, and no word to point into
+			for(int i = 0; i < n; i++) {
+				out.writeInt(labelWord[i] == -1 ? 0 : wordStart[labelWord[i]] + labelStart[i]);
+			}
+			for(int i = 0; i < n; i++) {
+				out.writeInt(labelEnd[i] - labelStart[i] + 1);
+			}
+			for(int i = 0; i <= n; i++) {
+				out.writeInt(childStart[i]);
+			}
+			for(int i = 0; i < n; i++) {
+				out.writeInt(word[i]);
+			}
+			for(int i = 0; i <= allWords.length; i++) {
+				out.writeInt(wordStart[i]);
+			}
+			for(String w : allWords) {
+				out.writeChars(w);
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of nodes in this trie, including the root.
+	 *
+	 * @return Number of nodes
+	 */
+	public int size() {
+		return word.length;
+	}
+
+	/**
+	 * Finds the node where the prefix ends, comparing it character by
+	 * character with the substrings on the way down.
+	 *
+	 * @return The highest node whose path spells out the whole prefix, or -1
+	 *         if no word starts with the prefix
+	 */
+	private int find(String prefix) {
+		int node = 0, matched = 0;
+		while(matched < prefix.length()) {
+			node = findChild(node, prefix.charAt(matched));
+			if(node == -1) {
+				return -1;
+			}
+			String label = allWords[labelWord[node]];
+			for(int i = labelStart[node]; i <= labelEnd[node] && matched < prefix.length(); i++, matched++) {
+				if(label.charAt(i) != prefix.charAt(matched)) {
+					return -1;
+				}
+			}
+		}
+		return node;
+	}
+
+	/**
+	 * Finds the child of a node whose substring starts with the given
+	 * character, by binary search; substrings of siblings always start
+	 * differently.
+	 *
+	 * @return The child, or -1 if there is none
+	 */
+	private int findChild(int node, char c) {
+		int lo = childStart[node], hi = childStart[node+1] - 1;
+		while(lo <= hi) {
+			int mid = (lo + hi) >>> 1;
+			char first = allWords[labelWord[mid]].charAt(labelStart[mid]);
+			if(first < c) {
+				lo = mid + 1;
+			} else if(first > c) {
+				hi = mid - 1;
+			} else {
+				return mid;
+			}
+		}
+		return -1;
+	}
+
+	private static void checkScores(String[] allWords, long[] scores)
+	throws IllegalArgumentException {
+		if(scores != null && scores.length != allWords.length) {
+			throw new IllegalArgumentException("There must be one score per word.");
+		}
+	}
+
+	/**
+	 * An entry of the topKCompletions queue: either a subtree, ranked by the
+	 * best score in it, or the word that ends at a node, ranked by its own
+	 * score.
+	 */
+	private static class Candidate implements Comparable<Candidate> {
+		final long score;
+		final int node;
+		final boolean isWord;
+
+		Candidate(long score, int node, boolean isWord) {
+			this.score = score;
+			this.node = node;
+			this.isWord = isWord;
+		}
+
+		/**
+		 * Highest score first; on a tie the word goes first, since opening
+		 * the subtree cannot find anything better.
+		 */
+		public int compareTo(Candidate o) {
+			if(score != o.score) {
+				return score > o.score ? -1 : 1;
+			}
+			return Boolean.compare(o.isWord, isWord);
+		}
+	}
+
+	/**
+	 * Lazy preorder walk over subtrees. The stack holds the subtrees still to
+	 * visit, the next one on top; visiting a node yields its word, if any, and
+	 * pushes its children.
+	 */
+	private class CompletionIterator implements Iterator<String> {
+		private int[] stack = new int[16];
+		private int top = 0;
+
+		/**
+		 * Index of the next word, or -1 if it has not been looked for yet
+		 */
+		private int next = -1;
+
+		void push(int node) {
+			if(top == stack.length) {
+				stack = Arrays.copyOf(stack, top * 2);
+			}
+			stack[top++] = node;
+		}
+
+		public boolean hasNext() {
+			while(next == -1 && top > 0) {
+				int node = stack[--top];
+				for(int child = childStart[node+1] - 1; child >= childStart[node]; child--) {
+					push(child);
+				}
+				next = word[node];
+			}
+			return next != -1;
+		}
+
+		public String next() {
+			if(!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			String result = allWords[next];
+			next = -1;
+			return result;
+		}
+	}
+
+	/**
+	 * One page of completions, with the cursor for the page after it.
+	 */
+	public static class Page {
+		private final List<String> words;
+		private final String nextCursor;
+
+		Page(List<String> words, String nextCursor) {
+			this.words = Collections.unmodifiableList(words);
+			this.nextCursor = nextCursor;
+		}
+
+		/**
+		 * Returns the words on this page, in alphabetical order.
+		 *
+		 * @return Unmodifiable list of words
+		 */
+		public List<String> words() {
+			return words;
+		}
+
+		/**
+		 * Returns the cursor to pass to page for the next page.
+		 *
+		 * @return Cursor for the next page, or null if this is the last page
+		 */
+		public String nextCursor() {
+			return nextCursor;
+		}
+	}
+
+	/**
+	 * Growable node arrays, used while a trie is being laid out.
+	 */
+	private static class Builder {
+		int[] labelWord, labelStart, labelEnd, childStart, word;
+		int size = 0;
+
+		Builder(int capacity) {
+			labelWord = new int[capacity];
+			labelStart = new int[capacity];
+			labelEnd = new int[capacity];
+			childStart = new int[capacity + 1];
+			word = new int[capacity];
+		}
+
+		/**
+		 * Appends a node with no word and no children yet.
+		 *
+		 * @return Number of the new node
+		 */
+		int add(int wordIndex, int start, int end) {
+			if(size == word.length) {
+				int capacity = size * 2;
+				labelWord = Arrays.copyOf(labelWord, capacity);
+				labelStart = Arrays.copyOf(labelStart, capacity);
+				labelEnd = Arrays.copyOf(labelEnd, capacity);
+				childStart = Arrays.copyOf(childStart, capacity + 1);
+				word = Arrays.copyOf(word, capacity);
+			}
+			labelWord[size] = wordIndex;
+			labelStart[size] = start;
+			labelEnd[size] = end;
+			word[size] = -1;
+			return size++;
+		}
+
+		CompactTrie finish(String[] allWords, long[] scores) {
+			childStart[size] = size;
+			return new CompactTrie(allWords,
+					Arrays.copyOf(labelWord, size), Arrays.copyOf(labelStart, size),
+					Arrays.copyOf(labelEnd, size), Arrays.copyOf(childStart, size + 1),
+					Arrays.copyOf(word, size), scores);
+		}
+	}
+}
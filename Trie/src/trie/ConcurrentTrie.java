@@ -0,0 +1,290 @@
+package trie;
+
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * This class implements a compressed trie that words can be inserted into
+ * and removed from at any time, by any number of threads, while others are
+ * looking up completions.
+ *
+ * Nodes are never changed once they are built. An insert or a remove copies
+ * the nodes on the path from the root down to the change (splitting or
+ * merging a substring on the way if it has to), and then swings the root
+ * over to the new copy with a single compare-and-set. Readers take the
+ * root once and work on that snapshot, so they never lock and never see an
+ * edge in the middle of a split. Writers that lose a race retry on the
+ * newer root.
+ *
+ * Unlike the TrieNode tree, nodes hold their substrings directly, so there
+ * is no array of words to keep around, and words may be prefixes of other
+ * words.
+ *
+ */
+public class ConcurrentTrie {
+
+	/**
+	 * Root of the current version of the trie; its substring is empty
+	 */
+	private final AtomicReference<Node> root = new AtomicReference<>(Node.EMPTY);
+
+	/**
+	 * Initializes an empty trie.
+	 */
+	public ConcurrentTrie() { }
+
+	/**
+	 * Inserts a word into the trie.
+	 *
+	 * @param word Word to insert
+	 * @return True if the word was inserted, false if it was already there
+	 */
+	public boolean insert(String word) {
+		while(true) {
+			Node current = root.get();
+			Node updated = insert(current, word, 0);
+			if(updated == current) {
+				return false;
+			}
+			if(root.compareAndSet(current, updated)) {
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * Removes a word from the trie.
+	 *
+	 * @param word Word to remove
+	 * @return True if the word was removed, false if it was not there
+	 */
+	public boolean remove(String word) {
+		while(true) {
+			Node current = root.get();
+			Node updated = remove(current, word, 0);
+			if(updated == current) {
+				return false;
+			}
+			if(root.compareAndSet(current, updated)) {
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * Tells whether a word is in the trie.
+	 *
+	 * @param word Word to look up
+	 * @return True if the word is in the trie
+	 */
+	public boolean contains(String word) {
+		Node node = root.get();
+		int depth = 0;
+		while(depth < word.length()) {
+			int i = node.find(word.charAt(depth));
+			if(i < 0) {
+				return false;
+			}
+			node = node.children[i];
+			if(!word.startsWith(node.label, depth)) {
+				return false;
+			}
+			depth += node.label.length();
+		}
+		return node.isWord;
+	}
+
+	/**
+	 * Returns the "completion list" for a prefix, i.e. all the words in the
+	 * trie that start with this prefix, as of one moment: inserts and
+	 * removes that finish while the list is being collected do not show up
+	 * in it.
+	 *
+	 * @param prefix Prefix to be completed with words in trie
+	 * @return List of all words in the trie that start with the prefix, in
+	 *         alphabetical order; empty if there are none
+	 */
+	public ArrayList<String> completionList(String prefix) {
+		ArrayList<String> matches = new ArrayList<>();
+		Node node = root.get();
+
+		//Descend to the node where the prefix ends, which may be part of the
+		//way into its substring
+		StringBuilder path = new StringBuilder();
+		int depth = 0;
+		while(depth < prefix.length()) {
+			int i = node.find(prefix.charAt(depth));
+			if(i < 0) {
+				return matches;
+			}
+			node = node.children[i];
+			int len = Math.min(node.label.length(), prefix.length() - depth);
+			if(!node.label.regionMatches(0, prefix, depth, len)) {
+				return matches;
+			}
+			path.append(node.label);
+			depth += node.label.length();
+		}
+		collect(node, path, matches);
+		return matches;
+	}
+
+	/**
+	 * Adds every word in the subtree of a node to a list, in order. The path
+	 * holds the characters from the root through the node, and is restored
+	 * before returning.
+	 */
+	private static void collect(Node node, StringBuilder path, ArrayList<String> matches) {
+		if(node.isWord) {
+			matches.add(path.toString());
+		}
+		int len = path.length();
+		for(Node child : node.children) {
+			path.append(child.label);
+			collect(child, path, matches);
+			path.setLength(len);
+		}
+	}
+
+	/**
+	 * Inserts the rest of a word, from depth on, below a node.
+	 *
+	 * @return The node if the word was already there, otherwise a copy of it
+	 *         with the word inserted
+	 */
+	private static Node insert(Node node, String word, int depth) {
+		if(depth == word.length()) {
+			return node.isWord ? node : new Node(node.label, true, node.children);
+		}
+		int i = node.find(word.charAt(depth));
+		if(i < 0) {
+			return node.withChild(-(i + 1), new Node(word.substring(depth), true, Node.NO_CHILDREN));
+		}
+
+		Node child = node.children[i];
+		int common = 1;
+		while(common < child.label.length() && depth + common < word.length()
+				&& child.label.charAt(common) == word.charAt(depth + common)) {
+			common++;
+		}
+		if(common == child.label.length()) {
+			Node updated = insert(child, word, depth + common);
+			return updated == child ? node : node.replaceChild(i, updated);
+		}
+
+		//The word leaves the substring part of the way in: split it, and put
+		//what is left of it and of the word under the common part
+		Node rest = new Node(child.label.substring(common), child.isWord, child.children);
+		Node split;
+		if(depth + common == word.length()) {
+			split = new Node(child.label.substring(0, common), true, new Node[] {rest});
+		} else {
+			Node leaf = new Node(word.substring(depth + common), true, Node.NO_CHILDREN);
+			Node[] pair = rest.label.charAt(0) < leaf.label.charAt(0)
+					? new Node[] {rest, leaf} : new Node[] {leaf, rest};
+			split = new Node(child.label.substring(0, common), false, pair);
+		}
+		return node.replaceChild(i, split);
+	}
+
+	/**
+	 * Removes the rest of a word, from depth on, from below a node.
+	 *
+	 * @return The node if the word was not there, otherwise a copy of it
+	 *         with the word removed. The copy may be left without a word and
+	 *         with fewer than two children, for the parent to tidy up.
+	 */
+	private static Node remove(Node node, String word, int depth) {
+		if(depth == word.length()) {
+			return node.isWord ? new Node(node.label, false, node.children) : node;
+		}
+		int i = node.find(word.charAt(depth));
+		if(i < 0) {
+			return node;
+		}
+		Node child = node.children[i];
+		if(!word.startsWith(child.label, depth)) {
+			return node;
+		}
+		Node updated = remove(child, word, depth + child.label.length());
+		if(updated == child) {
+			return node;
+		}
+
+		//A node that no longer ends a word is dropped if it has no children,
+		//and merged into its child if it has one, so the trie stays compressed
+		if(!updated.isWord && updated.children.length == 0) {
+			return node.removeChild(i);
+		}
+		if(!updated.isWord && updated.children.length == 1) {
+			Node only = updated.children[0];
+			updated = new Node(updated.label + only.label, only.isWord, only.children);
+		}
+		return node.replaceChild(i, updated);
+	}
+
+	/**
+	 * An immutable trie node: a substring, whether a word ends here, and the
+	 * children, sorted by the first character of their substrings.
+	 */
+	private static final class Node {
+
+		static final Node[] NO_CHILDREN = new Node[0];
+
+		static final Node EMPTY = new Node("", false, NO_CHILDREN);
+
+		final String label;
+		final boolean isWord;
+		final Node[] children;
+
+		Node(String label, boolean isWord, Node[] children) {
+			this.label = label;
+			this.isWord = isWord;
+			this.children = children;
+		}
+
+		/**
+		 * Finds the child whose substring starts with a character, by binary
+		 * search.
+		 *
+		 * @return Index of the child, or -(insertion point + 1) if there is
+		 *         none, like Arrays.binarySearch
+		 */
+		int find(char c) {
+			int lo = 0, hi = children.length - 1;
+			while(lo <= hi) {
+				int mid = (lo + hi) >>> 1;
+				char first = children[mid].label.charAt(0);
+				if(first < c) {
+					lo = mid + 1;
+				} else if(first > c) {
+					hi = mid - 1;
+				} else {
+					return mid;
+				}
+			}
+			return -(lo + 1);
+		}
+
+		Node withChild(int at, Node child) {
+			Node[] copy = new Node[children.length + 1];
+			System.arraycopy(children, 0, copy, 0, at);
+			copy[at] = child;
+			System.arraycopy(children, at, copy, at + 1, children.length - at);
+			return new Node(label, isWord, copy);
+		}
+
+		Node replaceChild(int at, Node child) {
+			Node[] copy = children.clone();
+			copy[at] = child;
+			return new Node(label, isWord, copy);
+		}
+
+		Node removeChild(int at) {
+			Node[] copy = new Node[children.length - 1];
+			System.arraycopy(children, 0, copy, 0, at);
+			System.arraycopy(children, at + 1, copy, at, copy.length - at);
+			return new Node(label, isWord, copy);
+		}
+	}
+}
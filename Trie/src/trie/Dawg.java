@@ -0,0 +1,338 @@
+package trie;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+
+/**
+ * This class implements a minimal deterministic acyclic automaton (DAWG) for
+ * a set of words. A trie shares the prefixes of words; the automaton also
+ * shares their endings, so "walking", "talking", "walked" and "talked" need
+ * one "ing" and one "ed" between them instead of one each. Of all automata
+ * that accept exactly the set, it has the fewest states.
+ *
+ * It is built incrementally from the sorted words (Daciuk et al.): each word
+ * is added as a path, and the states of the previous word that the new one
+ * no longer runs through can no longer change, so they are merged right
+ * away with any equivalent state seen before, found through a register of
+ * states by their contents. The automaton never has to be built unminimized.
+ *
+ * Once built, it is frozen into flat arrays: the transitions of state s are
+ * firstTransition[s] up to (not including) firstTransition[s+1], sorted by
+ * character, and state 0 is the start.
+ *
+ */
+public class Dawg {
+
+	/**
+	 * First transition of each state, with one extra entry at the end
+	 */
+	private final int[] firstTransition;
+
+	/**
+	 * Character of each transition
+	 */
+	private final char[] label;
+
+	/**
+	 * State each transition leads to
+	 */
+	private final int[] target;
+
+	/**
+	 * Whether a word ends at each state
+	 */
+	private final boolean[] isFinal;
+
+	/**
+	 * Number of distinct words accepted
+	 */
+	private final int wordCount;
+
+	private Dawg(int[] firstTransition, char[] label, int[] target, boolean[] isFinal, int wordCount) {
+		this.firstTransition = firstTransition;
+		this.label = label;
+		this.target = target;
+		this.isFinal = isFinal;
+		this.wordCount = wordCount;
+	}
+
+	/**
+	 * Builds the minimal automaton for a sorted array of words, the same
+	 * kind of array Trie.buildTrie takes. Words may be prefixes of other
+	 * words, and repeated words are accepted once.
+	 *
+	 * @param allWords Words in ascending order (as by Arrays.sort)
+	 * @return Minimal automaton accepting exactly the words
+	 * @throws IllegalArgumentException If the words are not sorted
+	 */
+	public static Dawg build(String[] allWords)
+	throws IllegalArgumentException {
+		HashMap<State, State> register = new HashMap<>();
+		State start = new State();
+
+		//path[i] is the state reached by the first i characters of the
+		//previous word; only these states can still change
+		State[] path = new State[16];
+		path[0] = start;
+		String previous = "";
+		int wordCount = 0;
+		for(String word : allWords) {
+			int cmp = previous.compareTo(word);
+			if(cmp > 0) {
+				throw new IllegalArgumentException("Words must be sorted.");
+			}
+			if(cmp == 0 && wordCount > 0) {
+				continue;
+			}
+
+			int common = 0;
+			while(common < previous.length() && common < word.length()
+					&& previous.charAt(common) == word.charAt(common)) {
+				common++;
+			}
+			//The previous word's states past the common prefix are final now
+			minimize(path, previous.length(), common, register);
+
+			if(word.length() >= path.length) {
+				path = Arrays.copyOf(path, Math.max(path.length * 2, word.length() + 1));
+			}
+			for(int i = common; i < word.length(); i++) {
+				path[i+1] = new State();
+				path[i].add(word.charAt(i), path[i+1]);
+			}
+			path[word.length()].isFinal = true;
+			previous = word;
+			wordCount++;
+		}
+		minimize(path, previous.length(), 0, register);
+		return freeze(start, wordCount);
+	}
+
+	/**
+	 * Replaces path[depth] down to path[common+1], deepest first, with an
+	 * equivalent registered state where there is one, and registers it
+	 * otherwise. Going deepest first means every child has already been
+	 * replaced by its registered twin when its parent is looked up.
+	 */
+	private static void minimize(State[] path, int depth, int common, HashMap<State, State> register) {
+		for(int i = depth; i > common; i--) {
+			State state = path[i];
+			State twin = register.get(state);
+			if(twin != null) {
+				path[i-1].replaceLast(twin);
+			} else {
+				state.freeze();
+				register.put(state, state);
+			}
+		}
+	}
+
+	/**
+	 * Numbers the states breadth first and copies them into arrays.
+	 */
+	private static Dawg freeze(State start, int wordCount) {
+		IdentityHashMap<State, Integer> ids = new IdentityHashMap<>();
+		ArrayList<State> states = new ArrayList<>();
+		ids.put(start, 0);
+		states.add(start);
+		int transitions = 0;
+		for(int s = 0; s < states.size(); s++) {
+			State state = states.get(s);
+			transitions += state.size;
+			for(int t = 0; t < state.size; t++) {
+				if(!ids.containsKey(state.targets[t])) {
+					ids.put(state.targets[t], states.size());
+					states.add(state.targets[t]);
+				}
+			}
+		}
+
+		int[] firstTransition = new int[states.size() + 1];
+		char[] label = new char[transitions];
+		int[] target = new int[transitions];
+		boolean[] isFinal = new boolean[states.size()];
+		int t = 0;
+		for(int s = 0; s < states.size(); s++) {
+			State state = states.get(s);
+			firstTransition[s] = t;
+			isFinal[s] = state.isFinal;
+			for(int i = 0; i < state.size; i++, t++) {
+				label[t] = state.labels[i];
+				target[t] = ids.get(state.targets[i]);
+			}
+		}
+		firstTransition[states.size()] = t;
+		return new Dawg(firstTransition, label, target, isFinal, wordCount);
+	}
+
+	/**
+	 * Tells whether a word is one of the words the automaton was built from.
+	 *
+	 * @param word Word to look up
+	 * @return True if the word is accepted
+	 */
+	public boolean contains(String word) {
+		int state = walk(word);
+		return state != -1 && isFinal[state];
+	}
+
+	/**
+	 * Returns the "completion list" for a prefix, i.e. all the words that
+	 * start with this prefix.
+	 *
+	 * @param prefix Prefix to be completed with words in the automaton
+	 * @return List of all words that start with the prefix, in alphabetical
+	 *         order; empty if there are none
+	 */
+	public ArrayList<String> completionList(String prefix) {
+		ArrayList<String> matches = new ArrayList<>();
+		int state = walk(prefix);
+		if(state != -1) {
+			collect(state, new StringBuilder(prefix), matches);
+		}
+		return matches;
+	}
+
+	/**
+	 * Returns the number of distinct words accepted.
+	 *
+	 * @return Number of words
+	 */
+	public int size() {
+		return wordCount;
+	}
+
+	/**
+	 * Returns the number of states, including the start state.
+	 *
+	 * @return Number of states
+	 */
+	public int stateCount() {
+		return isFinal.length;
+	}
+
+	/**
+	 * Returns the number of transitions.
+	 *
+	 * @return Number of transitions
+	 */
+	public int transitionCount() {
+		return label.length;
+	}
+
+	/**
+	 * Follows a string from the start state.
+	 *
+	 * @return The state reached, or -1 if the string falls off the automaton
+	 */
+	private int walk(String s) {
+		int state = 0;
+		for(int i = 0; i < s.length() && state != -1; i++) {
+			state = next(state, s.charAt(i));
+		}
+		return state;
+	}
+
+	/**
+	 * Finds the transition of a state on a character, by binary search.
+	 *
+	 * @return The state it leads to, or -1 if there is none
+	 */
+	private int next(int state, char c) {
+		int lo = firstTransition[state], hi = firstTransition[state+1] - 1;
+		while(lo <= hi) {
+			int mid = (lo + hi) >>> 1;
+			if(label[mid] < c) {
+				lo = mid + 1;
+			} else if(label[mid] > c) {
+				hi = mid - 1;
+			} else {
+				return target[mid];
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Adds every word reachable from a state to a list, in order. The path
+	 * holds the characters read so far, and is restored before returning.
+	 */
+	private void collect(int state, StringBuilder path, ArrayList<String> matches) {
+		if(isFinal[state]) {
+			matches.add(path.toString());
+		}
+		int len = path.length();
+		for(int t = firstTransition[state]; t < firstTransition[state+1]; t++) {
+			path.append(label[t]);
+			collect(target[t], path, matches);
+			path.setLength(len);
+		}
+	}
+
+	/**
+	 * A state while the automaton is being built. Transitions are only ever
+	 * appended in increasing character order, since the words come sorted,
+	 * and only the last one is ever redirected. Once a state is registered it
+	 * does not change again, so its hash code stays valid in the register.
+	 */
+	private static class State {
+		boolean isFinal;
+		char[] labels = new char[2];
+		State[] targets = new State[2];
+		int size = 0;
+
+		void add(char c, State target) {
+			if(size == labels.length) {
+				labels = Arrays.copyOf(labels, size * 2);
+				targets = Arrays.copyOf(targets, size * 2);
+			}
+			labels[size] = c;
+			targets[size] = target;
+			size++;
+		}
+
+		void replaceLast(State target) {
+			targets[size-1] = target;
+		}
+
+		/**
+		 * Trims the transition arrays, just before the state goes into the
+		 * register.
+		 */
+		void freeze() {
+			labels = Arrays.copyOf(labels, size);
+			targets = Arrays.copyOf(targets, size);
+		}
+
+		public int hashCode() {
+			int h = isFinal ? 1 : 0;
+			for(int i = 0; i < size; i++) {
+				h = 31 * h + labels[i];
+				h = 31 * h + System.identityHashCode(targets[i]);
+			}
+			return h;
+		}
+
+		/**
+		 * Two states are equivalent if both or neither end a word, and they
+		 * have the same transitions to the very same (registered) states.
+		 */
+		public boolean equals(Object o) {
+			if(!(o instanceof State)) {
+				return false;
+			}
+			State other = (State)o;
+			if(isFinal != other.isFinal || size != other.size) {
+				return false;
+			}
+			for(int i = 0; i < size; i++) {
+				if(labels[i] != other.labels[i] || targets[i] != other.targets[i]) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+}
@@ -0,0 +1,235 @@
+package trie;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * This class answers completion lists straight from a trie image file, as
+ * written by CompactTrie.write. The file is memory-mapped and read in place:
+ * opening it only checks the header, so a trie of any size is ready to use
+ * at once, and the operating system pages in just the parts that queries
+ * touch.
+ *
+ * The image holds the arrays of the CompactTrie, with the substrings turned
+ * into offsets into one block of characters that holds all the words, so
+ * the array of words is not needed. The layout, with every value big-endian:
+ *    int    magic number, "TRIE" in ASCII
+ *    int    format version, currently 1
+ *    int    number of nodes n
+ *    int    number of words w
+ *    int    number of characters c in all the words together
+ *    int[n]   character offset of the substring of each node
+ *    int[n]   length of the substring of each node
+ *    int[n+1] first child of each node, as in CompactTrie
+ *    int[n]   index of the word that ends at each node, or -1
+ *    int[w+1] character offset of each word, and c at the end
+ *    char[c]  characters of all the words, one after another
+ * Nodes are in the breadth-first order of the CompactTrie, so the children
+ * of every node are consecutive and sorted by first character.
+ *
+ * A MappedTrie is never changed, so any number of threads can query it.
+ *
+ */
+public class MappedTrie {
+
+	/**
+	 * First int of every image, "TRIE" in ASCII
+	 */
+	static final int MAGIC = 0x54524945;
+
+	/**
+	 * Format version written after the magic number
+	 */
+	static final int VERSION = 1;
+
+	/**
+	 * Size of the magic number, version and counts, in bytes
+	 */
+	static final int HEADER_SIZE = 20;
+
+	private final IntBuffer labelOffset;
+	private final IntBuffer labelLength;
+	private final IntBuffer childStart;
+	private final IntBuffer word;
+	private final IntBuffer wordStart;
+	private final CharBuffer chars;
+	private final int nodeCount;
+	private final int wordCount;
+
+	private MappedTrie(ByteBuffer image)
+	throws IOException {
+		if(image.capacity() < HEADER_SIZE || image.getInt(0) != MAGIC) {
+			throw new IOException("Not a trie image.");
+		}
+		int version = image.getInt(4);
+		if(version != VERSION) {
+			throw new IOException("Unsupported trie image version " + version + ".");
+		}
+		nodeCount = image.getInt(8);
+		wordCount = image.getInt(12);
+		int charCount = image.getInt(16);
+		long size = HEADER_SIZE + 4L * (4L * nodeCount + 1 + wordCount + 1) + 2L * charCount;
+		if(nodeCount < 1 || wordCount < 0 || charCount < 0 || size != image.capacity()) {
+			throw new IOException("Trie image is truncated or damaged.");
+		}
+
+		int offset = HEADER_SIZE;
+		labelOffset = slice(image, offset, 4 * nodeCount).asIntBuffer();
+		offset += 4 * nodeCount;
+		labelLength = slice(image, offset, 4 * nodeCount).asIntBuffer();
+		offset += 4 * nodeCount;
+		childStart = slice(image, offset, 4 * (nodeCount + 1)).asIntBuffer();
+		offset += 4 * (nodeCount + 1);
+		word = slice(image, offset, 4 * nodeCount).asIntBuffer();
+		offset += 4 * nodeCount;
+		wordStart = slice(image, offset, 4 * (wordCount + 1)).asIntBuffer();
+		offset += 4 * (wordCount + 1);
+		chars = slice(image, offset, 2 * charCount).asCharBuffer();
+	}
+
+	/**
+	 * Maps a trie image file. The file must not be changed while the trie is
+	 * in use.
+	 *
+	 * @param file Image written by CompactTrie.write
+	 * @return Trie that reads the image in place
+	 * @throws IOException If the file cannot be read, is not a trie image, or
+	 *         is larger than 2 GB
+	 */
+	public static MappedTrie open(Path file)
+	throws IOException {
+		try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			if(channel.size() > Integer.MAX_VALUE) {
+				throw new IOException("Trie image is larger than 2 GB.");
+			}
+			//The mapping stays valid after the channel is closed
+			return new MappedTrie(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+		}
+	}
+
+	/**
+	 * Returns the "completion list" for a prefix, i.e. all the words in the
+	 * trie that start with this prefix.
+	 *
+	 * @param prefix Prefix to be completed with words in trie
+	 * @return List of all words that start with the prefix, in trie order;
+	 *         empty if there are none
+	 */
+	public ArrayList<String> completionList(String prefix) {
+		ArrayList<String> matches = new ArrayList<>();
+
+		//Descend to the node where the prefix ends
+		int node = 0, matched = 0;
+		while(matched < prefix.length()) {
+			node = findChild(node, prefix.charAt(matched));
+			if(node == -1) {
+				return matches;
+			}
+			int offset = labelOffset.get(node), length = labelLength.get(node);
+			for(int i = 0; i < length && matched < prefix.length(); i++, matched++) {
+				if(chars.get(offset + i) != prefix.charAt(matched)) {
+					return matches;
+				}
+			}
+		}
+
+		//Walk the subtree with an explicit stack
+		int[] stack = new int[16];
+		int top = 0;
+		stack[top++] = node;
+		while(top > 0) {
+			int ptr = stack[--top];
+			if(word.get(ptr) != -1) {
+				matches.add(word(word.get(ptr)));
+			}
+			int first = childStart.get(ptr), last = childStart.get(ptr + 1);
+			if(top + last - first > stack.length) {
+				stack = Arrays.copyOf(stack, Math.max(stack.length * 2, top + last - first));
+			}
+			for(int child = last - 1; child >= first; child--) {
+				stack[top++] = child;
+			}
+		}
+		return matches;
+	}
+
+	/**
+	 * Returns a word of the trie by its index, which is its index in the
+	 * array of words the trie was built from.
+	 *
+	 * @param index Index of the word
+	 * @return The word
+	 * @throws IndexOutOfBoundsException If there is no word at that index
+	 */
+	public String word(int index)
+	throws IndexOutOfBoundsException {
+		if(index < 0 || index >= wordCount) {
+			throw new IndexOutOfBoundsException("No word at index " + index + ".");
+		}
+		int start = wordStart.get(index), end = wordStart.get(index + 1);
+		char[] text = new char[end - start];
+		for(int i = 0; i < text.length; i++) {
+			text[i] = chars.get(start + i);
+		}
+		return new String(text);
+	}
+
+	/**
+	 * Returns the number of words in the image, which is the length of the
+	 * array of words the trie was built from.
+	 *
+	 * @return Number of words
+	 */
+	public int wordCount() {
+		return wordCount;
+	}
+
+	/**
+	 * Returns the number of nodes in this trie, including the root.
+	 *
+	 * @return Number of nodes
+	 */
+	public int size() {
+		return nodeCount;
+	}
+
+	/**
+	 * Finds the child of a node whose substring starts with the given
+	 * character, by binary search.
+	 *
+	 * @return The child, or -1 if there is none
+	 */
+	private int findChild(int node, char c) {
+		int lo = childStart.get(node), hi = childStart.get(node + 1) - 1;
+		while(lo <= hi) {
+			int mid = (lo + hi) >>> 1;
+			char first = chars.get(labelOffset.get(mid));
+			if(first < c) {
+				lo = mid + 1;
+			} else if(first > c) {
+				hi = mid - 1;
+			} else {
+				return mid;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns the given number of bytes of the image, from offset on, as a
+	 * buffer of its own.
+	 */
+	private static ByteBuffer slice(ByteBuffer image, int offset, int bytes) {
+		ByteBuffer view = image.duplicate();
+		view.position(offset);
+		view.limit(offset + bytes);
+		return view.slice();
+	}
+}
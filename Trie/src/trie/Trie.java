@@ -1,7 +1,10 @@
 package trie;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
 /**
  * This class implements a Trie. 
@@ -11,6 +14,12 @@ import java.util.Arrays;
  */
 public class Trie {
 	
+	/**
+	 * Number of words below which buildTrie(allWords, pool) builds a subtrie
+	 * on the current thread instead of forking
+	 */
+	private static final int PARALLEL_GRAIN = 1 << 12;
+	
 	// prevent instantiation
 	private Trie() { }
 	
@@ -93,7 +102,7 @@ public class Trie {
 				//Shift everything from before down and to the right of new parent
 				lastSeen.firstChild = new TrieNode(currWordNewIndexes, null, null);
 				lastSeen.firstChild.firstChild = currFirstChild;
-				lastSeen.firstChild.sibling = new TrieNode(new Indexes((short)index, (short)(simUpTo+1), (short)(word.length()-1)), 
+				lastSeen.firstChild.sibling = new TrieNode(new Indexes(index, (short)(simUpTo+1), (short)(word.length()-1)), 
 						null, null);
 			}
 			
@@ -105,6 +114,151 @@ public class Trie {
 		return root;
 	}
 	
+	/**
+	 * Builds the same trie as buildTrie, for a large array of words, using
+	 * the threads of a fork/join pool.
+	 * 
+	 * With the words in sorted order, the words under every node are a
+	 * contiguous range of the array, so the trie can be built range by range
+	 * instead of one word at a time: a node holds the common prefix of the
+	 * first and last words of its range, and its children are the sub-ranges
+	 * that agree on the next character. Sibling ranges share nothing, so they
+	 * are built as separate tasks and linked up when they are done.
+	 * 
+	 * The trie refers to words by their position in the array, so the words
+	 * must already be sorted; the array is never reordered. The result is
+	 * node for node the trie that buildTrie makes from the same array.
+	 * 
+	 * Every word is a leaf of the trie, so no word may be empty, appear twice,
+	 * or be a prefix of another word (as "an" is of "and"); such arrays are
+	 * rejected before anything is built. (buildTrie does not make a sound
+	 * trie from them either.)
+	 * 
+	 * @param allWords Input array of words (lowercase) to be inserted, in
+	 *        ascending order (as by Arrays.sort)
+	 * @param pool Pool to build the subtries on
+	 * @return Root of trie with all words inserted from the input array
+	 * @throws IllegalArgumentException If the words are not sorted, or a
+	 *         word is empty, appears twice, or is a prefix of another word
+	 */
+	public static TrieNode buildTrie(String[] allWords, ForkJoinPool pool)
+	throws IllegalArgumentException {
+		//In sorted order, a word that is a prefix of any other is a prefix of
+		//the word right after it, and the empty word comes first
+		if(allWords.length > 0 && allWords[0].isEmpty())
+			throw new IllegalArgumentException("Words must not be empty.");
+		for(int i = 1; i < allWords.length; i++) {
+			if(allWords[i-1].compareTo(allWords[i]) > 0)
+				throw new IllegalArgumentException("Words must be sorted.");
+			if(allWords[i].equals(allWords[i-1]))
+				throw new IllegalArgumentException("Word \"" + allWords[i] + "\" appears more than once.");
+			if(allWords[i].startsWith(allWords[i-1]))
+				throw new IllegalArgumentException("Word \"" + allWords[i-1] + "\" is a prefix of \"" + allWords[i] + "\".");
+		}
+		TrieNode root = new TrieNode(null, null, null);
+		root.firstChild = pool.invoke(new BuildTask(allWords, 0, allWords.length, 0));
+		return root;
+	}
+	
+	/**
+	 * Builds the children for a range of sorted words that agree on their
+	 * first depth characters, one per character that follows.
+	 * 
+	 * @return First child, with the others linked as its siblings in order
+	 */
+	private static TrieNode buildChildren(String[] words, int lo, int hi, int depth) {
+		TrieNode first = null, last = null;
+		for(int from = lo; from < hi; ) {
+			int to = groupEnd(words, from, hi, depth);
+			TrieNode node = newNode(words, from, to, depth);
+			if(to - from > 1)
+				node.firstChild = buildChildren(words, from, to, node.substr.endIndex + 1);
+			
+			if(first == null)
+				first = node;
+			else
+				last.sibling = node;
+			last = node;
+			from = to;
+		}
+		return first;
+	}
+	
+	/**
+	 * Finds where the words that agree with words[from] at depth end.
+	 */
+	private static int groupEnd(String[] words, int from, int hi, int depth) {
+		char c = words[from].charAt(depth);
+		int to = from + 1;
+		while(to < hi && words[to].charAt(depth) == c)
+			to++;
+		return to;
+	}
+	
+	/**
+	 * Makes the node for a range of sorted words, starting at depth, without
+	 * children. Like buildTrie, it points at the first word of the range, and
+	 * a single word gets the whole rest of it.
+	 */
+	private static TrieNode newNode(String[] words, int from, int to, int depth) {
+		String first = words[from], last = words[to-1];
+		int end = first.length() - 1;
+		if(to - from > 1) { //Up to where the first and last words part
+			end = depth;
+			while(end + 1 < first.length() && end + 1 < last.length()
+					&& first.charAt(end + 1) == last.charAt(end + 1))
+				end++;
+		}
+		return new TrieNode(new Indexes(from, (short)depth, (short)end), null, null);
+	}
+	
+	/**
+	 * Builds the children for a range of sorted words as a fork/join task,
+	 * like buildChildren. Large child ranges are forked as tasks of their own.
+	 */
+	private static class BuildTask extends RecursiveTask<TrieNode> {
+		private static final long serialVersionUID = 1L;
+		
+		final String[] words;
+		final int lo, hi, depth;
+		
+		BuildTask(String[] words, int lo, int hi, int depth) {
+			this.words = words;
+			this.lo = lo;
+			this.hi = hi;
+			this.depth = depth;
+		}
+		
+		protected TrieNode compute() {
+			if(hi - lo < PARALLEL_GRAIN)
+				return buildChildren(words, lo, hi, depth);
+			
+			ArrayList<TrieNode> nodes = new ArrayList<>();
+			ArrayList<BuildTask> tasks = new ArrayList<>();
+			for(int from = lo; from < hi; ) {
+				int to = groupEnd(words, from, hi, depth);
+				TrieNode node = newNode(words, from, to, depth);
+				BuildTask task = null;
+				if(to - from > 1) {
+					task = new BuildTask(words, from, to, node.substr.endIndex + 1);
+					task.fork();
+				}
+				nodes.add(node);
+				tasks.add(task);
+				from = to;
+			}
+			
+			//Link the siblings, and hang each subtrie under its node
+			for(int i = 0; i < nodes.size(); i++) {
+				if(tasks.get(i) != null)
+					nodes.get(i).firstChild = tasks.get(i).join();
+				if(i > 0)
+					nodes.get(i-1).sibling = nodes.get(i);
+			}
+			return nodes.isEmpty() ? null : nodes.get(0);
+		}
+	}
+	
 	private static int similarUpTo(String inTrie, String insert) {
 		//Placeholder return statement
 		int upTo = 0;
@@ -138,31 +292,135 @@ public class Trie {
 		if(root == null) return null;
 		
 		ArrayList<TrieNode> matches = new ArrayList<>();
-		TrieNode ptr = root;
 		
-		while(ptr != null) {
-			//Get the substring at this node
-			if(ptr.substr == null) //Possible that we're checking on root
-				ptr = ptr.firstChild;
+		//Descend to the node where the prefix ends. Siblings never start with
+		//the same character, so only one child can continue the prefix, and
+		//its substring is compared in place, character by character
+		TrieNode ptr = root;
+		int matched = 0;
+		while(matched < prefix.length()) {
+			char c = prefix.charAt(matched);
+			TrieNode child = ptr.firstChild;
+			while(child != null && allWords[child.substr.wordIndex].charAt(child.substr.startIndex) != c)
+				child = child.sibling;
+			if(child == null) //No word continues the prefix
+				return matches;
 			
-			String s = allWords[ptr.substr.wordIndex];
-			String a = s.substring(0, ptr.substr.endIndex+1);
-			if(s.startsWith(prefix) || prefix.startsWith(a)) {
-				if(ptr.firstChild != null) { //this is not a full word, go to children
-					matches.addAll(completionList(ptr.firstChild, allWords, prefix));
-					ptr = ptr.sibling;
-				} else { //Otherwise this is a full string node
-					matches.add(ptr);
-					ptr = ptr.sibling;
-				}
-			} else {
-				ptr = ptr.sibling;
+			String word = allWords[child.substr.wordIndex];
+			for(int i = child.substr.startIndex; i <= child.substr.endIndex && matched < prefix.length(); i++, matched++) {
+				if(word.charAt(i) != prefix.charAt(matched))
+					return matches;
 			}
+			ptr = child;
+		}
+		
+		//Every leaf below is a completion
+		addLeaves(ptr, root, matches);
+		return matches;
+	}
+	
+	/**
+	 * Adds all the leaves in the subtree of a node to a list. The stack holds
+	 * the next node to visit in each level, so leaves come out in sibling
+	 * order, depth first.
+	 */
+	private static void addLeaves(TrieNode top, TrieNode root, ArrayList<TrieNode> leaves) {
+		ArrayDeque<TrieNode> stack = new ArrayDeque<>();
+		stack.push(top);
+		while(!stack.isEmpty()) {
+			TrieNode node = stack.pop();
+			if(node != top && node.sibling != null)
+				stack.push(node.sibling);
+			if(node.firstChild != null)
+				stack.push(node.firstChild);
+			else if(node != root)
+				leaves.add(node);
 		}
+	}
+	
+	/**
+	 * Given a trie, returns the leaf nodes of all the words that start with a
+	 * prefix, allowing for typos: a word matches if some prefix of it is at
+	 * most maxEdits single character insertions, deletions or substitutions
+	 * away from the given prefix. For instance, with one edit allowed and the
+	 * words "bear", "bell", "bid", "bull", "buy", the prefix "bel" completes
+	 * to "bell", and also to "bear" and "bull", which start one substitution
+	 * away.
+	 * 
+	 * The walk goes down the substrings character by character, keeping one
+	 * row of the edit distance table per character of the path: the
+	 * distances between the path so far and every prefix of the given prefix.
+	 * Each character only adds one row to the row above it. Once the last
+	 * entry of a row is within maxEdits, every leaf below matches; once every
+	 * entry is over maxEdits, nothing below can match, and the branch is
+	 * dropped.
+	 * 
+	 * @param root Root of Trie that stores all words to search on
+	 * @param allWords Array of words that have been inserted into the trie
+	 * @param prefix Prefix to be completed, possibly with typos
+	 * @param maxEdits Largest number of edits allowed
+	 * @return List of all leaf nodes in trie that hold matching words, in
+	 *         no particular order; null if the root is null
+	 * @throws IllegalArgumentException If maxEdits is negative
+	 */
+	public static ArrayList<TrieNode> fuzzyCompletions(TrieNode root,
+										String[] allWords, String prefix, int maxEdits)
+	throws IllegalArgumentException {
+		if(maxEdits < 0)
+			throw new IllegalArgumentException("maxEdits must not be negative.");
+		if(root == null) return null;
+		
+		ArrayList<TrieNode> matches = new ArrayList<>();
+		//Row 0 is for the empty path: j deletions to match the first j characters
+		ArrayList<int[]> rows = new ArrayList<>();
+		int[] first = new int[prefix.length() + 1];
+		for(int j = 0; j < first.length; j++)
+			first[j] = j;
+		rows.add(first);
 		
+		if(prefix.length() <= maxEdits) { //Even the empty word is close enough
+			addLeaves(root, root, matches);
+			return matches;
+		}
+		for(TrieNode ptr = root.firstChild; ptr != null; ptr = ptr.sibling)
+			fuzzyCompletions(ptr, allWords, prefix, maxEdits, rows, matches);
 		return matches;
 	}
 	
+	/**
+	 * Continues the fuzzy walk at a node. rows holds the row for every
+	 * character of the path so far, and rows for deeper characters are
+	 * reused from earlier branches instead of allocated again.
+	 */
+	private static void fuzzyCompletions(TrieNode node, String[] allWords, String prefix, int maxEdits,
+			ArrayList<int[]> rows, ArrayList<TrieNode> matches) {
+		String word = allWords[node.substr.wordIndex];
+		int m = prefix.length();
+		for(int i = node.substr.startIndex; i <= node.substr.endIndex; i++) {
+			//Row i+1 is the path through word character i
+			if(rows.size() == i + 1)
+				rows.add(new int[m + 1]);
+			int[] above = rows.get(i), row = rows.get(i + 1);
+			char c = word.charAt(i);
+			row[0] = i + 1;
+			int min = row[0];
+			for(int j = 1; j <= m; j++) {
+				int substitute = above[j-1] + (prefix.charAt(j-1) == c ? 0 : 1);
+				row[j] = Math.min(substitute, Math.min(above[j], row[j-1]) + 1);
+				min = Math.min(min, row[j]);
+			}
+			
+			if(row[m] <= maxEdits) { //The path matches, so everything below does
+				addLeaves(node, null, matches);
+				return;
+			}
+			if(min > maxEdits) //Distances only grow from here
+				return;
+		}
+		for(TrieNode ptr = node.firstChild; ptr != null; ptr = ptr.sibling)
+			fuzzyCompletions(ptr, allWords, prefix, maxEdits, rows, matches);
+	}
+	
 	public static void print(TrieNode root, String[] allWords) {
 		System.out.println("\nTRIE\n");
 		print(root, 1, allWords);
@@ -2,17 +2,49 @@ package trie;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Scanner;
 
 public class TrieApp {
 
+	/**
+	 * File name ending of trie images written by CompactTrie.write
+	 */
+	static final String IMAGE_SUFFIX = ".trie";
+	
 	static Scanner stdin = new Scanner(System.in);
 	
 	public static void main(String[] args) 
 	throws IOException {
+		// with two arguments, save the trie for a words file as an image
+		// that later runs can load instantly, then exit
+		if (args.length == 2) {
+			String[] allWords = readWords(args[0]);
+			CompactTrie.build(Trie.buildTrie(allWords), allWords).write(Paths.get(args[1]));
+			System.out.println("Wrote " + allWords.length + " words to " + args[1]);
+			return;
+		}
+		
 		System.out.print("Enter words file name => ");
 		String wordsFile = stdin.nextLine();
+		// trie images are mapped as they are, without building anything
+		if (wordsFile.endsWith(IMAGE_SUFFIX)) {
+			completionLists(MappedTrie.open(Paths.get(wordsFile)));
+			return;
+		}
+		String[] allWords = readWords(wordsFile);
+		
+		// build Trie
+		TrieNode root = Trie.buildTrie(allWords);
+		// print it for verification
+		Trie.print(root, allWords);
+		// do completion lists
+		completionLists(root, allWords);
+	}
+	
+	private static String[] readWords(String wordsFile) 
+	throws IOException {
 		Scanner sc = new Scanner(new File(wordsFile));
 		// words appear one per line in input file
 		// first line has number of words
@@ -22,13 +54,21 @@ public class TrieApp {
 			allWords[i] = sc.nextLine().trim().toLowerCase();
 		}
 		sc.close();
-		
-		// build Trie
-		TrieNode root = Trie.buildTrie(allWords);
-		// print it for verification
-		Trie.print(root, allWords);
-		// do completion lists
-		completionLists(root, allWords);
+		return allWords;
+	}
+	
+	private static void completionLists(MappedTrie trie) {
+		System.out.print("\ncompletion list for (enter prefix, or 'quit'): ");
+		String prefix = stdin.nextLine().trim().toLowerCase();
+		while (!"quit".equals(prefix)) {
+			ArrayList<String> matches = trie.completionList(prefix);
+			if (matches.size() > 0)
+				System.out.println(String.join(", ", matches));
+			else
+				System.out.println("No match found");
+			System.out.print("\ncompletion list for: ");
+			prefix = stdin.nextLine().trim().toLowerCase();
+		}
 	}
 	
 	private static void completionLists(TrieNode root, String[] allWords) {